@@ -1,6 +1,7 @@
 plugins {
     id("java")
     id("org.jetbrains.intellij") version "1.17.2"
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 group = "com.github.archsx"
@@ -10,12 +11,33 @@ repositories {
     mavenCentral()
 }
 
+dependencies {
+    testImplementation("junit:junit:4.13.2")
+}
+
 intellij {
     version.set("2023.3")
     type.set("IC") // IC = Community, IU = Ultimate
     plugins.set(listOf(/* Add any needed plugins here */))
 }
 
+// Benchmarks live in src/jmh/java; run with ./gradlew jmh (-Pjmh.includes=<regex> to pick some)
+jmh {
+    jmhVersion.set("1.37")
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+}
+
+// Platform classes are compileOnly for the plugin; benchmarks run outside the IDE and need them on the classpath
+configurations {
+    named("jmhCompileClasspath") { extendsFrom(compileOnly.get()) }
+    named("jmhRuntimeClasspath") { extendsFrom(compileOnly.get()) }
+}
+
 tasks {
     withType<JavaCompile> {
         sourceCompatibility = "17"
@@ -37,6 +59,16 @@ tasks {
         token.set(System.getenv("PUBLISH_TOKEN"))
     }
 
+    // Headless bundler for CI, same engine as the tool window: ./gradlew bundle --args="src -o build/bundle.md"
+    register<JavaExec>("bundle") {
+        group = "snippetbundle"
+        description = "Writes a Markdown bundle of the given paths without starting the IDE"
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("com.github.archsx.snippetbundle.cli.BundleCli")
+        workingDir = rootDir
+        maxHeapSize = "1g"
+    }
+
     runIde {
         // Add additional JVM options if needed
         jvmArgs = listOf("-Xmx2048m")
@@ -0,0 +1,118 @@
+package com.github.archsx.snippetbundle.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic in-memory file trees for benchmarks: '/'-separated paths with generated source-like content.
+ * Same parameters, same tree, so runs are comparable.
+ */
+public final class SyntheticTree {
+
+    /** How files are spread over folders. */
+    public enum Shape {
+        /** Few folders with many files each, like a generated or vendored directory. */
+        FLAT(2, 200),
+        /** Many nested folders with a handful of files each, like a Java package hierarchy. */
+        DEEP(8, 6),
+        /** In between; typical application sources. */
+        MIXED(4, 25);
+
+        final int depth;
+        final int filesPerDir;
+
+        Shape(int depth, int filesPerDir) {
+            this.depth = depth;
+            this.filesPerDir = filesPerDir;
+        }
+    }
+
+    public static final class File {
+        public final String path;
+        public final String extension;
+        public final byte[] content;
+
+        File(String path, String extension, byte[] content) {
+            this.path = path;
+            this.extension = extension;
+            this.content = content;
+        }
+    }
+
+    private static final String[] EXTENSIONS = {"java", "kt", "ts", "py", "md", "xml", "yaml", "sh", "log"};
+    // A few of these are typically ignored, so ignore matching has something to find
+    private static final String[] FOLDERS = {
+            "src", "main", "java", "app", "core", "util", "model", "service",
+            "build", "generated", "test", "docs", "node_modules", "api", "impl", "out"};
+    private static final String[] WORDS = {
+            "value", "result", "index", "buffer", "node", "parent", "children", "context", "request", "handler",
+            "config", "String", "List", "Map", "return", "if", "for", "while", "final", "static"};
+
+    private SyntheticTree() {}
+
+    /**
+     * {@code fileCount} files laid out by {@code shape}; about one in {@code binaryEvery} is binary
+     * (0 for none). Text files average {@code meanSize} bytes.
+     */
+    public static List<File> generate(int fileCount, Shape shape, int meanSize, int binaryEvery, long seed) {
+        Random random = new Random(seed);
+        List<File> files = new ArrayList<>(fileCount);
+        for (int i = 0; i < fileCount; i++) {
+            StringBuilder dir = new StringBuilder("root");
+            // The folder changes every filesPerDir files; its number is spelled out in base 7, one digit per level
+            int folder = i / shape.filesPerDir;
+            for (int level = 0; level < shape.depth; level++) {
+                int digit = folder % 7;
+                folder /= 7;
+                dir.append('/').append(FOLDERS[(digit * 3 + level) % FOLDERS.length]);
+                if (digit > 3) dir.append(digit);
+            }
+            boolean binary = binaryEvery > 0 && i % binaryEvery == binaryEvery - 1;
+            String ext = binary ? "dat" : EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+            String path = dir + "/" + (random.nextBoolean() ? "File" : "file") + i + "." + ext;
+            int size = Math.max(16, (int) (meanSize * (0.25 + 1.5 * random.nextDouble())));
+            byte[] content = binary ? binaryContent(random, size) : textContent(random, size);
+            files.add(new File(path, ext, content));
+        }
+        Collections.shuffle(files, random);
+        return files;
+    }
+
+    private static byte[] textContent(Random random, int size) {
+        StringBuilder sb = new StringBuilder(size + 64);
+        if (random.nextInt(4) == 0) sb.append("/*\n * Copyright (c) 2024 Example. Licensed under the MIT License.\n */\n");
+        int indent = 0;
+        while (sb.length() < size) {
+            int kind = random.nextInt(10);
+            for (int k = 0; k < indent; k++) sb.append("    ");
+            if (kind == 0) {
+                sb.append("// ").append(WORDS[random.nextInt(WORDS.length)]).append(" note\n");
+            } else if (kind == 1 && indent < 4) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append("Handler(").append(WORDS[random.nextInt(WORDS.length)])
+                        .append(" arg) {\n");
+                indent++;
+            } else if (kind == 2 && indent > 0) {
+                sb.setLength(sb.length() - 4);
+                sb.append("}\n\n");
+                indent--;
+            } else if (kind == 3) {
+                sb.append("String s = \"``").append(WORDS[random.nextInt(WORDS.length)]).append("``\";\n");
+            } else {
+                for (int w = 1 + random.nextInt(6); w > 0; w--) {
+                    sb.append(WORDS[random.nextInt(WORDS.length)]).append(w > 1 ? ' ' : ';');
+                }
+                sb.append('\n');
+            }
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] binaryContent(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
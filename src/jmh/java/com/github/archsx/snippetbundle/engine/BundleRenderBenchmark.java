@@ -0,0 +1,210 @@
+package com.github.archsx.snippetbundle.engine;
+
+import com.github.archsx.snippetbundle.bench.SyntheticTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-file stages of {@link BundleEngine} over a synthetic tree, one benchmark per stage plus the whole
+ * pipeline: collect and sort, binary sniff, decode, fence, token estimate, compaction, Markdown rendering,
+ * and a real engine run over the tree held in memory.
+ * Each invocation processes the whole tree, so scores read as "trees per second".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BundleRenderBenchmark {
+
+    @Param({"1000", "20000"})
+    public int fileCount;
+
+    @Param({"MIXED", "DEEP", "FLAT"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"4096"})
+    public int meanSize;
+
+    private List<SyntheticTree.File> files;
+    private CharSequence[] texts;
+    private final CompactionOptions compaction = new CompactionOptions(true, true, true, true);
+    private ExecutorService executor;
+    private BundleEngine engine;
+    private FileSource source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        files = SyntheticTree.generate(fileCount, shape, meanSize, 20, 42);
+        texts = new CharSequence[files.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = new String(files.get(i).content, StandardCharsets.UTF_8);
+        }
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        executor = Executors.newFixedThreadPool(threads);
+        engine = new BundleEngine(executor, threads * 4);
+        source = (out, progress) -> {
+            for (SyntheticTree.File f : files) out.add(new MemoryFile(f), f.path, false, false);
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<String> collectAndSort() {
+        List<String> paths = new ArrayList<>(files.size());
+        for (SyntheticTree.File f : files) paths.add(f.path);
+        // Same order as the copier
+        paths.sort(Comparator.comparing(p -> p.toLowerCase(Locale.ROOT)));
+        return paths;
+    }
+
+    @Benchmark
+    public int binarySniff() {
+        int binary = 0;
+        for (SyntheticTree.File f : files) {
+            if (FileRules.isProbablyBinary(f.content, f.content.length)) binary++;
+        }
+        return binary;
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh) {
+        TextDecoder decoder = TextDecoder.forCurrentThread();
+        for (SyntheticTree.File f : files) bh.consume(decoder.decode(f.content, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void fence(Blackhole bh) {
+        for (CharSequence text : texts) bh.consume(BundleEngine.makeSafeFence(text));
+    }
+
+    @Benchmark
+    public long tokens() {
+        long total = 0;
+        for (CharSequence text : texts) total += TokenEstimator.DEFAULT.estimate(text);
+        return total;
+    }
+
+    @Benchmark
+    public void compaction(Blackhole bh) {
+        for (int i = 0; i < texts.length; i++) {
+            ContentCompactor.Syntax syntax = ContentCompactor.Syntax.forExtension(files.get(i).extension);
+            bh.consume(ContentCompactor.compact(texts[i], syntax, compaction));
+        }
+    }
+
+    /** Sort, sniff, decode, fence, estimate and write every block, as one bundle run does without I/O. */
+    @Benchmark
+    public long renderMarkdown() throws IOException {
+        List<SyntheticTree.File> sorted = new ArrayList<>(files);
+        sorted.sort(Comparator.comparing(f -> f.path.toLowerCase(Locale.ROOT)));
+
+        CountingWriter sink = new CountingWriter();
+        BundleWriter out = new BundleWriter(sink);
+        TextDecoder decoder = TextDecoder.forCurrentThread();
+        long tokens = 0;
+        for (SyntheticTree.File f : sorted) {
+            if (FileRules.isProbablyBinary(f.content, f.content.length)) continue;
+            CharBuffer content = decoder.decode(f.content, StandardCharsets.UTF_8);
+            String fence = BundleEngine.makeSafeFence(content);
+            tokens += TokenEstimator.DEFAULT.estimate(content);
+            out.append(out.isEmpty() ? "" : "\n\n")
+                    .append("### ").append(f.path).append("\n")
+                    .append(fence).append(BundleEngine.fenceLanguage(f.extension)).append("\n")
+                    .append(content);
+            if (!out.endsWithNewline()) out.append("\n");
+            out.append(fence);
+        }
+        out.flush();
+        return sink.count + tokens;
+    }
+
+    /** Collect, sort, parallel load, render, with no budget pressure; what a headless run costs minus disk I/O. */
+    @Benchmark
+    public long engineWrite() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        BundleResult result = engine.write(source, sink, BundleOptions.of(new BundleBudget(Long.MAX_VALUE, 0)),
+                null, BundleProgress.NONE);
+        return sink.count + result.totalTokens;
+    }
+
+    private static final class MemoryFile implements BundleFile {
+        private final SyntheticTree.File file;
+
+        MemoryFile(SyntheticTree.File file) {
+            this.file = file;
+        }
+
+        @Override
+        public String getName() {
+            return file.path.substring(file.path.lastIndexOf('/') + 1);
+        }
+
+        @Override
+        public String getExtension() {
+            return file.extension;
+        }
+
+        @Override
+        public long getLength() {
+            return file.content.length;
+        }
+
+        @Override
+        public long getTimeStamp() {
+            return 0;
+        }
+
+        @Override
+        public Charset getCharset() {
+            return StandardCharsets.UTF_8;
+        }
+
+        @Override
+        public byte[] contentsToByteArray() {
+            return file.content;
+        }
+    }
+
+    /** Discards output; keeps a count so the work cannot be optimized away. */
+    private static final class CountingWriter extends Writer {
+        long count;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
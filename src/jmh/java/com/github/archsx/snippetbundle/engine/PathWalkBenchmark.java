@@ -0,0 +1,71 @@
+package com.github.archsx.snippetbundle.engine;
+
+import com.github.archsx.snippetbundle.bench.SyntheticTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Walking a synthetic tree written to a temp folder with {@link PathFileSource}, with and without ignore files:
+ * the collect stage of a headless run, on the common pool. Warm page cache; measures the walk, not the disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PathWalkBenchmark {
+
+    @Param({"20000"})
+    public int fileCount;
+
+    @Param({"MIXED", "DEEP"})
+    public SyntheticTree.Shape shape;
+
+    @Param({"true", "false"})
+    public boolean respectIgnoreFiles;
+
+    private Path dir;
+    private PathFileSource source;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snippetbundle-walk");
+        for (SyntheticTree.File f : SyntheticTree.generate(fileCount, shape, 64, 0, 7)) {
+            Path file = dir.resolve(f.path);
+            Files.createDirectories(file.getParent());
+            Files.write(file, f.content);
+        }
+        Files.write(dir.resolve("root/.gitignore"), "*.log\ngenerated/\n".getBytes(StandardCharsets.UTF_8));
+        source = new PathFileSource(Collections.singletonList(dir.resolve("root"))).withIgnoreFiles(respectIgnoreFiles);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) Files.delete(p);
+        }
+    }
+
+    @Benchmark
+    public int collect() throws IOException {
+        int[] count = new int[1];
+        source.collect((file, path, explicit, outline) -> count[0]++, BundleProgress.NONE);
+        return count[0];
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.archsx.snippetbundle.ignore;
+
+import com.github.archsx.snippetbundle.bench.SyntheticTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a typical {@code .gitignore} and matching every path of a synthetic tree against it,
+ * the work done per directory and per file while walking with ignore files on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IgnoreMatchBenchmark {
+
+    private static final String GITIGNORE = String.join("\n",
+            "# Build output",
+            "build/",
+            "out/",
+            "target/",
+            "*.class",
+            "*.log",
+            "/dist",
+            "**/generated/**",
+            "node_modules",
+            ".idea/",
+            "*.iml",
+            "*.[oa]",
+            "!keep.log",
+            "docs/**/*.pdf",
+            "tmp-*",
+            "\\#notes#",
+            "");
+
+    @Param({"20000"})
+    public int fileCount;
+
+    @Param({"MIXED", "DEEP"})
+    public SyntheticTree.Shape shape;
+
+    private String[] paths;
+    private IgnoreRuleSet rules;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<SyntheticTree.File> files = SyntheticTree.generate(fileCount, shape, 64, 0, 7);
+        paths = new String[files.size()];
+        for (int i = 0; i < paths.length; i++) paths[i] = files.get(i).path;
+        rules = IgnoreRuleSet.parse(GITIGNORE, false);
+    }
+
+    @Benchmark
+    public IgnoreRuleSet parse() {
+        return IgnoreRuleSet.parse(GITIGNORE, false);
+    }
+
+    @Benchmark
+    public int matchFiles() {
+        int ignored = 0;
+        for (String path : paths) {
+            if (rules.match(path, false) == IgnoreRuleSet.Verdict.IGNORED) ignored++;
+        }
+        return ignored;
+    }
+
+    /** Every folder on every path, as a top-down walk asks before descending. */
+    @Benchmark
+    public int matchFolders() {
+        int ignored = 0;
+        for (String path : paths) {
+            for (int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1)) {
+                if (rules.match(path.subSequence(0, slash), true) == IgnoreRuleSet.Verdict.IGNORED) ignored++;
+            }
+        }
+        return ignored;
+    }
+}
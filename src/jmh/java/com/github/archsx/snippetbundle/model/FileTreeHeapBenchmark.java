@@ -0,0 +1,248 @@
+package com.github.archsx.snippetbundle.model;
+
+import com.github.archsx.snippetbundle.bench.SyntheticTree;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileSystem;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap held by a fully loaded {@link FileTreeNode} tree over a synthetic selection, next to the layout it replaced:
+ * one class for every node with its own filter reference, two booleans and an {@code ArrayList} in an unmodifiable
+ * wrapper, leaves included. The VirtualFiles are built once and shared, so only the nodes are measured.
+ * Stats are left uncomputed; they need the IDE's file types. The retained size is read from the used heap after
+ * full GCs and reported as the {@code bytesPerNode} counter; the gc profiler adds what building a tree allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FileTreeHeapBenchmark {
+
+    @Param({"100000"})
+    public int fileCount;
+
+    @Param({"FLAT", "MIXED", "DEEP"})
+    public SyntheticTree.Shape shape;
+
+    private MemoryDir root;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+        public long bytesPerNode;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytesPerNode = 0;
+        }
+
+        void record(long bytes, int nodes) {
+            bytesPerNode = bytes / nodes;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        root = new MemoryDir("root", null);
+        for (SyntheticTree.File f : SyntheticTree.generate(fileCount, shape, 64, 0, 7)) {
+            String[] segments = f.path.split("/");
+            MemoryDir dir = root;
+            for (int i = 1; i < segments.length - 1; i++) dir = dir.dir(segments[i]);
+            dir.children.put(segments[segments.length - 1], new MemoryFile(segments[segments.length - 1], dir));
+        }
+    }
+
+    @Benchmark
+    public Object fileTreeNodes(Retained retained) {
+        long before = usedHeapAfterGc();
+        FileTreeNode tree = FileTreeNode.root(root, file -> true);
+        int nodes = 0;
+        Deque<FileTreeNode> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            nodes++;
+            for (FileTreeNode child : pending.pop().getChildren()) pending.push(child);
+        }
+        retained.record(usedHeapAfterGc() - before, nodes);
+        return tree;
+    }
+
+    @Benchmark
+    public Object previousLayout(Retained retained) {
+        long before = usedHeapAfterGc();
+        PreviousNode tree = new PreviousNode(root, null, file -> true);
+        int nodes = 0;
+        Deque<PreviousNode> pending = new ArrayDeque<>();
+        pending.push(tree);
+        while (!pending.isEmpty()) {
+            nodes++;
+            for (PreviousNode child : pending.pop().getChildren()) pending.push(child);
+        }
+        retained.record(usedHeapAfterGc() - before, nodes);
+        return tree;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /** The node fields and child loading as they were before nodes were split by kind. */
+    private static final class PreviousNode {
+        private final VirtualFile file;
+        private final PreviousNode parent;
+        private final NodeFilter filter;
+        private volatile List<PreviousNode> children;
+        private volatile boolean expanded;
+        private volatile boolean outline;
+        private volatile NodeStats stats;
+
+        PreviousNode(VirtualFile file, PreviousNode parent, NodeFilter filter) {
+            this.file = file;
+            this.parent = parent;
+            this.filter = filter;
+        }
+
+        List<PreviousNode> getChildren() {
+            if (children == null) {
+                List<PreviousNode> loaded = new ArrayList<>();
+                VirtualFile[] childFiles = file.getChildren();
+                if (childFiles != null) {
+                    for (VirtualFile child : childFiles) {
+                        if (filter.accept(child)) loaded.add(new PreviousNode(child, this, filter));
+                    }
+                }
+                children = Collections.unmodifiableList(loaded);
+            }
+            return children;
+        }
+    }
+
+    /** Just enough of a VirtualFile to build nodes from; no content, no file system. */
+    private abstract static class MemoryVirtualFile extends VirtualFile {
+        private final String name;
+        private final MemoryDir parent;
+
+        MemoryVirtualFile(String name, MemoryDir parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public VirtualFileSystem getFileSystem() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getPath() {
+            return parent == null ? name : parent.getPath() + "/" + name;
+        }
+
+        @Override
+        public boolean isWritable() {
+            return false;
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+
+        @Override
+        public VirtualFile getParent() {
+            return parent;
+        }
+
+        @Override
+        public OutputStream getOutputStream(Object requestor, long newModificationStamp, long newTimeStamp) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] contentsToByteArray() {
+            return new byte[0];
+        }
+
+        @Override
+        public long getTimeStamp() {
+            return 0;
+        }
+
+        @Override
+        public long getLength() {
+            return 0;
+        }
+
+        @Override
+        public void refresh(boolean asynchronous, boolean recursive, Runnable postRunnable) {
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class MemoryFile extends MemoryVirtualFile {
+        MemoryFile(String name, MemoryDir parent) {
+            super(name, parent);
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public VirtualFile[] getChildren() {
+            return null;
+        }
+    }
+
+    private static final class MemoryDir extends MemoryVirtualFile {
+        final Map<String, MemoryVirtualFile> children = new LinkedHashMap<>();
+
+        MemoryDir(String name, MemoryDir parent) {
+            super(name, parent);
+        }
+
+        MemoryDir dir(String name) {
+            return (MemoryDir) children.computeIfAbsent(name, n -> new MemoryDir(n, this));
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return true;
+        }
+
+        @Override
+        public VirtualFile[] getChildren() {
+            return children.values().toArray(VirtualFile[]::new);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.github.archsx.snippetbundle.action;
 
 import com.github.archsx.snippetbundle.service.QuickCopyService;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.actionSystem.CommonDataKeys;
@@ -15,6 +16,7 @@ import com.intellij.psi.PsiFile;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 public class AddToSnippetBundleAction extends AnAction {
 
@@ -22,11 +24,16 @@ public class AddToSnippetBundleAction extends AnAction {
         super("Add to SnippetBundle");
     }
 
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        // update() only probes data keys (and PSI under the BGT read action); keep it off the EDT
+        return ActionUpdateThread.BGT;
+    }
+
     @Override
     public void update(@NotNull AnActionEvent e) {
-        List<VirtualFile> files = collectSelectedFiles(e);
         e.getPresentation().setVisible(true);
-        e.getPresentation().setEnabled(!files.isEmpty());
+        e.getPresentation().setEnabled(e.getProject() != null && hasSelectedFile(e));
     }
 
     @Override
@@ -43,52 +50,71 @@ public class AddToSnippetBundleAction extends AnAction {
         svc.addFiles(files);
     }
 
+    /** Stops at the first valid file; never builds the full (deduped) selection. */
+    private static boolean hasSelectedFile(@NotNull AnActionEvent e) {
+        return visitSelectedFiles(e, VirtualFile::isValid);
+    }
+
     @NotNull
     private static List<VirtualFile> collectSelectedFiles(@NotNull AnActionEvent e) {
         LinkedHashSet<VirtualFile> out = new LinkedHashSet<>();
+        visitSelectedFiles(e, f -> {
+            out.add(f);
+            return false;
+        });
+        return new ArrayList<>(out);
+    }
 
+    /**
+     * Feeds every selected file to {@code visitor}, cheapest data keys first, until it returns true.
+     * Returns whether the visitor stopped the walk.
+     */
+    private static boolean visitSelectedFiles(@NotNull AnActionEvent e, @NotNull Predicate<VirtualFile> visitor) {
         // 1) Classic keys (may be missing in 2025 Project View V2)
-        VirtualFile[] vfa = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
-        if (vfa != null) Collections.addAll(out, vfa);
-
         VirtualFile vf = e.getData(CommonDataKeys.VIRTUAL_FILE);
-        if (vf != null) out.add(vf);
+        if (vf != null && visitor.test(vf)) return true;
 
-        // 2) PSI array (very common in newer views)
-        PsiElement[] psiArr = e.getData(LangDataKeys.PSI_ELEMENT_ARRAY);
-        if (psiArr != null) {
-            for (PsiElement el : psiArr) {
-                VirtualFile f = toVirtualFile(el);
-                if (f != null) out.add(f);
+        VirtualFile[] vfa = e.getData(CommonDataKeys.VIRTUAL_FILE_ARRAY);
+        if (vfa != null) {
+            for (VirtualFile f : vfa) {
+                if (f != null && visitor.test(f)) return true;
             }
         }
 
-        // 3) Single PSI element / file
+        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
+        if (psiFile != null && psiFile.getVirtualFile() != null && visitor.test(psiFile.getVirtualFile())) {
+            return true;
+        }
+
+        // 2) Single PSI element
         PsiElement psi = e.getData(CommonDataKeys.PSI_ELEMENT);
         if (psi != null) {
             VirtualFile f = toVirtualFile(psi);
-            if (f != null) out.add(f);
+            if (f != null && visitor.test(f)) return true;
         }
 
-        PsiFile psiFile = e.getData(CommonDataKeys.PSI_FILE);
-        if (psiFile != null && psiFile.getVirtualFile() != null) {
-            out.add(psiFile.getVirtualFile());
+        // 3) PSI array (very common in newer views)
+        PsiElement[] psiArr = e.getData(LangDataKeys.PSI_ELEMENT_ARRAY);
+        if (psiArr != null) {
+            for (PsiElement el : psiArr) {
+                VirtualFile f = toVirtualFile(el);
+                if (f != null && visitor.test(f)) return true;
+            }
         }
 
         // 4) Navigatable keys (often the ONLY thing available in some 2025 contexts)
         Navigatable nav = e.getData(CommonDataKeys.NAVIGATABLE);
         VirtualFile navFile = toVirtualFile(nav);
-        if (navFile != null) out.add(navFile);
+        if (navFile != null && visitor.test(navFile)) return true;
 
         Navigatable[] navArr = e.getData(CommonDataKeys.NAVIGATABLE_ARRAY);
         if (navArr != null) {
             for (Navigatable n : navArr) {
                 VirtualFile f = toVirtualFile(n);
-                if (f != null) out.add(f);
+                if (f != null && visitor.test(f)) return true;
             }
         }
-
-        return new ArrayList<>(out);
+        return false;
     }
 
     private static VirtualFile toVirtualFile(PsiElement el) {
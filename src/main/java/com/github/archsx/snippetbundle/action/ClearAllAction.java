@@ -2,6 +2,7 @@ package com.github.archsx.snippetbundle.action;
 
 import com.github.archsx.snippetbundle.service.QuickCopyService;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.AnActionEvent;
 import com.intellij.openapi.project.Project;
@@ -20,7 +21,7 @@ public class ClearAllAction extends AnAction {
         if (project == null) return;
 
         QuickCopyService svc = project.getService(QuickCopyService.class);
-        if (svc.getRootNodesSnapshot().isEmpty()) return;
+        if (svc.isEmpty()) return;
 
         int ok = Messages.showYesNoDialog(
                 project,
@@ -33,13 +34,18 @@ public class ClearAllAction extends AnAction {
         svc.clearAll();
     }
 
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
     @Override
     public void update(@NotNull AnActionEvent e) {
         Project project = e.getProject();
         boolean enabled = false;
         if (project != null) {
             QuickCopyService svc = project.getService(QuickCopyService.class);
-            enabled = !svc.getRootNodesSnapshot().isEmpty();
+            enabled = !svc.isEmpty();
         }
         e.getPresentation().setEnabled(enabled);
     }
@@ -0,0 +1,236 @@
+package com.github.archsx.snippetbundle.cli;
+
+import com.github.archsx.snippetbundle.engine.BundleBudget;
+import com.github.archsx.snippetbundle.engine.BundleEngine;
+import com.github.archsx.snippetbundle.engine.BundleOptions;
+import com.github.archsx.snippetbundle.engine.BundleProgress;
+import com.github.archsx.snippetbundle.engine.BundleResult;
+import com.github.archsx.snippetbundle.engine.CompactionOptions;
+import com.github.archsx.snippetbundle.engine.FileOutput;
+import com.github.archsx.snippetbundle.engine.PathFileSource;
+import com.github.archsx.snippetbundle.ignore.IgnoreRuleSet;
+
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Builds a bundle without the IDE, for CI and review bots: same engine, ordering, fences and language tags
+ * as the tool window. Folders are walked and files read in parallel; output is streamed, so memory stays
+ * flat however large the bundle is. Run through {@code ./gradlew bundle --args="..."} or as a plain main class.
+ */
+public final class BundleCli {
+
+    private static final int EXIT_FAILED = 1;
+    private static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: bundle [options] [path...]",
+            "Writes the files under each path (default: the current folder) as one Markdown bundle.",
+            "",
+            "  -o, --output <file>          write to <file> instead of stdout (\"-\")",
+            "      --max-chars <n>          char budget (default: unlimited)",
+            "      --max-tokens <n>         estimated-token budget (default: none)",
+            "      --exclude <pattern>      gitignore-style pattern, relative to each root; repeatable",
+            "      --exclude-from <file>    read such patterns from <file>",
+            "      --no-ignore-files        do not read .gitignore, .ignore, .snippetbundleignore",
+            "      --strip-license-headers  drop a leading license comment",
+            "      --strip-comments         drop comments",
+            "      --collapse-blank-lines   keep at most one blank line in a row",
+            "      --trim-trailing-whitespace",
+            "      --charset <name>         charset of the files (default: UTF-8)",
+            "      --threads <n>            threads for walking and reading (default: cores, at most 16)",
+            "  -q, --quiet                  no summary on stderr",
+            "  -h, --help");
+
+    private BundleCli() {}
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.err));
+    }
+
+    /** Exit code: 0 on success, 1 if the bundle could not be written, 2 on bad arguments. */
+    static int run(String[] args, PrintStream err) {
+        Arguments a;
+        try {
+            a = Arguments.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (a.help) {
+            err.println(USAGE);
+            return 0;
+        }
+
+        ExecutorService loaders = Executors.newFixedThreadPool(a.threads, r -> {
+            Thread t = new Thread(r, "snippetbundle-loader");
+            t.setDaemon(true);
+            return t;
+        });
+        // Listing folders waits on the disk more than it computes; give the walk some extra threads
+        ForkJoinPool walkers = new ForkJoinPool(a.threads * 2);
+        long start = System.nanoTime();
+        try {
+            IgnoreRuleSet excludes = IgnoreRuleSet.parse(String.join("\n", a.excludes), false);
+            PathFileSource source = new PathFileSource(a.roots)
+                    .withIgnoreFiles(a.respectIgnoreFiles)
+                    .withExtraRules(excludes)
+                    .withCharset(a.charset)
+                    .withPool(walkers);
+            BundleOptions options = BundleOptions.of(new BundleBudget(a.maxChars, a.maxTokens))
+                    .withCompaction(a.compaction);
+            BundleEngine engine = new BundleEngine(loaders, a.threads * 4);
+
+            BundleResult result;
+            if (a.output == null) {
+                Writer out = new OutputStreamWriter(
+                        new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024), StandardCharsets.UTF_8);
+                result = engine.write(source, out, options, null, BundleProgress.NONE);
+                out.flush();
+            } else {
+                try (FileOutput out = new FileOutput(a.output)) {
+                    result = engine.write(source, out.writer(), options, null, BundleProgress.NONE);
+                    out.commit();
+                }
+            }
+            if (!a.quiet) err.println(summary(result, (System.nanoTime() - start) / 1_000_000));
+            return 0;
+        } catch (IOException e) {
+            // Expected failures (missing root, unwritable output) get one line for scripts to parse
+            err.println("bundle: " + e);
+            return EXIT_FAILED;
+        } catch (UncheckedIOException e) {
+            err.println("bundle: " + e.getCause());
+            return EXIT_FAILED;
+        } catch (RuntimeException e) {
+            // Anything else is a bug; keep the trace so it can be reported
+            err.println("bundle: internal error: " + e);
+            e.printStackTrace(err);
+            return EXIT_FAILED;
+        } finally {
+            loaders.shutdownNow();
+            walkers.shutdownNow();
+        }
+    }
+
+    private static String summary(BundleResult r, long millis) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Bundled %d file(s): %d chars, ~%d tokens in %d ms",
+                r.copiedFiles, r.totalChars, r.totalTokens, millis));
+        if (r.skippedBinary > 0) sb.append(String.format(" | %d binary skipped", r.skippedBinary));
+        if (r.unreadable > 0) sb.append(String.format(" | %d unreadable", r.unreadable));
+        if (r.skippedIgnored > 0) sb.append(String.format(" | %d ignored", r.skippedIgnored));
+        if (r.omittedFiles > 0) sb.append(String.format(" | %d left out to fit the budget", r.omittedFiles));
+        BundleResult.FileStat last = r.files.isEmpty() ? null : r.files.get(r.files.size() - 1);
+        if (last != null && last.partial) sb.append(" | cut ").append(last.path);
+        return sb.toString();
+    }
+
+    /** Parsed command line. */
+    private static final class Arguments {
+        final List<Path> roots = new ArrayList<>();
+        final List<String> excludes = new ArrayList<>();
+        Path output;
+        long maxChars = Long.MAX_VALUE;
+        long maxTokens = BundleBudget.NO_TOKEN_LIMIT;
+        boolean respectIgnoreFiles = true;
+        boolean stripLicenseHeaders;
+        boolean stripComments;
+        boolean collapseBlankLines;
+        boolean trimTrailingWhitespace;
+        CompactionOptions compaction;
+        Charset charset = StandardCharsets.UTF_8;
+        int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 16));
+        boolean quiet;
+        boolean help;
+
+        static Arguments parse(String[] args) {
+            Arguments a = new Arguments();
+            boolean options = true;
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (!options || !arg.startsWith("-")) {
+                    a.roots.add(Paths.get(arg));
+                    continue;
+                }
+                switch (arg) {
+                    case "--": options = false; break;
+                    case "-o":
+                    case "--output": {
+                        String file = value(args, ++i, arg);
+                        a.output = file.equals("-") ? null : Paths.get(file);
+                        break;
+                    }
+                    case "--max-chars": a.maxChars = positive(value(args, ++i, arg), arg); break;
+                    case "--max-tokens": a.maxTokens = positive(value(args, ++i, arg), arg); break;
+                    case "--exclude": a.excludes.add(value(args, ++i, arg)); break;
+                    case "--exclude-from": a.excludes.add(read(value(args, ++i, arg))); break;
+                    case "--no-ignore-files": a.respectIgnoreFiles = false; break;
+                    case "--strip-license-headers": a.stripLicenseHeaders = true; break;
+                    case "--strip-comments": a.stripComments = true; break;
+                    case "--collapse-blank-lines": a.collapseBlankLines = true; break;
+                    case "--trim-trailing-whitespace": a.trimTrailingWhitespace = true; break;
+                    case "--charset": a.charset = charset(value(args, ++i, arg)); break;
+                    case "--threads": a.threads = (int) Math.min(256, positive(value(args, ++i, arg), arg)); break;
+                    case "-q":
+                    case "--quiet": a.quiet = true; break;
+                    case "-h":
+                    case "--help": a.help = true; break;
+                    default: throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (a.roots.isEmpty()) a.roots.add(Paths.get("."));
+            a.compaction = new CompactionOptions(a.stripLicenseHeaders, a.stripComments, a.collapseBlankLines,
+                    a.trimTrailingWhitespace);
+            return a;
+        }
+
+        private static String value(String[] args, int i, String option) {
+            if (i >= args.length) throw new IllegalArgumentException("Missing value for " + option);
+            return args[i];
+        }
+
+        private static long positive(String value, String option) {
+            try {
+                long n = Long.parseLong(value.replace("_", ""));
+                if (n > 0) return n;
+            } catch (NumberFormatException ignored) {
+                // reported below
+            }
+            throw new IllegalArgumentException(option + " needs a positive number, got: " + value);
+        }
+
+        private static Charset charset(String name) {
+            try {
+                return Charset.forName(name);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Unknown charset: " + name);
+            }
+        }
+
+        private static String read(String file) {
+            try {
+                return new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read " + file + ": " + e.getMessage());
+            }
+        }
+    }
+}
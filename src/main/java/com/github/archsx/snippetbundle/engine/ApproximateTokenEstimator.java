@@ -0,0 +1,63 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Approximates BPE tokenizers (cl100k/o200k style) over source code without a vocabulary:
+ * words split at camelCase humps and cost one token per ~6 letters, digits group by three,
+ * a single space before a word merges into it, whitespace and newline runs cost one token,
+ * punctuation pairs up, and any other code point is one token. Typically within ~15% on code.
+ */
+public final class ApproximateTokenEstimator implements TokenEstimator {
+
+    // Letters per token inside one word segment
+    private static final int LETTERS_PER_TOKEN = 6;
+    // BPE vocabularies split digit runs into groups of up to three
+    private static final int DIGITS_PER_TOKEN = 3;
+
+    @Override
+    public int estimate(@NotNull CharSequence s, int start, int end) {
+        int tokens = 0;
+        int i = start;
+        while (i < end) {
+            char c = s.charAt(i);
+            int runStart = i;
+            if (c == '\n' || c == '\r') {
+                while (i < end && (s.charAt(i) == '\n' || s.charAt(i) == '\r')) i++;
+                tokens++;
+            } else if (c == ' ' || c == '\t') {
+                while (i < end && (s.charAt(i) == ' ' || s.charAt(i) == '\t')) i++;
+                // " word" is one token; indentation and other runs are one token of their own
+                if (i - runStart > 1 || i >= end || !isAsciiLetter(s.charAt(i))) tokens++;
+            } else if (isAsciiLetter(c)) {
+                i++;
+                while (i < end && isAsciiLetter(s.charAt(i)) && !isHump(s.charAt(i - 1), s.charAt(i))) i++;
+                tokens += 1 + (i - runStart - 1) / LETTERS_PER_TOKEN;
+            } else if (c >= '0' && c <= '9') {
+                while (i < end && s.charAt(i) >= '0' && s.charAt(i) <= '9') i++;
+                tokens += (i - runStart + DIGITS_PER_TOKEN - 1) / DIGITS_PER_TOKEN;
+            } else if (c < 0x80) {
+                while (i < end && isAsciiPunctuation(s.charAt(i))) i++;
+                if (i == runStart) i++; // control characters
+                tokens += (i - runStart + 1) / 2;
+            } else {
+                i += Character.isHighSurrogate(c) && i + 1 < end ? 2 : 1;
+                tokens++;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    /** lower -> Upper starts a new word segment, e.g. get|File|Count. */
+    private static boolean isHump(char prev, char c) {
+        return c >= 'A' && c <= 'Z' && prev >= 'a' && prev <= 'z';
+    }
+
+    private static boolean isAsciiPunctuation(char c) {
+        return c > ' ' && c < 0x7F && !isAsciiLetter(c) && !(c >= '0' && c <= '9');
+    }
+}
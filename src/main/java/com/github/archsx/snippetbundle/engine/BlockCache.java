@@ -0,0 +1,16 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps prepared blocks between bundle runs, so unchanged files are not read and scanned again.
+ * Called concurrently from loader threads.
+ */
+public interface BlockCache {
+
+    /** Block of {@code file} if it has not changed since it was stored and was built for {@code variant}. */
+    @Nullable LoadedFile get(@NotNull BundleFile file, int variant);
+
+    void put(@NotNull BundleFile file, @NotNull LoadedFile block);
+}
@@ -0,0 +1,26 @@
+package com.github.archsx.snippetbundle.engine;
+
+/**
+ * How much a bundle may hold: a hard cap in chars plus an optional estimated-token budget.
+ */
+public final class BundleBudget {
+
+    /** Token budget value meaning "no token limit, chars only". */
+    public static final long NO_TOKEN_LIMIT = 0;
+
+    public final long maxChars;
+    public final long maxTokens;
+
+    public BundleBudget(long maxChars, long maxTokens) {
+        this.maxChars = maxChars;
+        this.maxTokens = maxTokens;
+    }
+
+    public static BundleBudget chars(long maxChars) {
+        return new BundleBudget(maxChars, NO_TOKEN_LIMIT);
+    }
+
+    public boolean hasTokenLimit() {
+        return maxTokens > NO_TOKEN_LIMIT;
+    }
+}
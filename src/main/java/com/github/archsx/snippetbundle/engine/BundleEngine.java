@@ -0,0 +1,371 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the files of a {@link FileSource} as one Markdown bundle: sorted by path, one fenced block per text file,
+ * within a char and token budget. Knows nothing about the IDE; the plugin and the command line feed it
+ * through {@link FileSource}, {@link BundleFile} and {@link BundleProgress}. Thread-safe; one instance can
+ * serve concurrent runs.
+ */
+public final class BundleEngine {
+
+    // Room kept free for the truncation note, so it never pushes the bundle over budget
+    private static final int TRUNCATION_NOTE_CHARS = 96;
+    private static final int TRUNCATION_NOTE_TOKENS = 32;
+    // Cache variant of outline blocks; above the compaction mask bits, which do not apply to outlines
+    private static final int OUTLINE_VARIANT = 1 << 4;
+
+    private final ExecutorService executor;
+    private final int window;
+
+    /**
+     * @param executor loads files ahead of the writer
+     * @param window   how many files may be loaded ahead of the writer; bounds memory to roughly this many file bodies
+     */
+    public BundleEngine(@NotNull ExecutorService executor, int window) {
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * Streams the source's files as Markdown into {@code sink} within the options' budget (chars and, if set,
+     * estimated tokens). If the selection is too large, {@link BundlePacker} first picks the most relevant files
+     * that fit, and packs again into the room of files that turn out binary once read; files that still overflow
+     * once read are left out whole. Only a first file that alone exceeds the budget is cut mid-file. Files are
+     * prepared on the executor with a bounded look-ahead window; output goes through a fixed-size buffer.
+     * Unchanged files are served from {@code cache} when one is given. Honours cancellation of {@code progress}.
+     */
+    public @NotNull BundleResult write(@NotNull FileSource source,
+                                       @NotNull Writer sink,
+                                       @NotNull BundleOptions options,
+                                       @Nullable BlockCache cache,
+                                       @NotNull BundleProgress progress) throws IOException {
+        BundleWriter out = new BundleWriter(sink);
+        BundleBudget budget = options.budget;
+        TokenEstimator estimator = TokenEstimator.DEFAULT;
+        long maxTokens = budget.hasTokenLimit() ? budget.maxTokens : Long.MAX_VALUE;
+
+        progress.setIndeterminate(true);
+        progress.setText("Collecting files...");
+        List<BundleEntry> selected = collect(source, progress);
+        selected.sort(Comparator.comparing(e -> e.sortKey));
+        long now = System.currentTimeMillis();
+        List<BundleEntry> files = BundlePacker.pack(selected, budget, options.openFiles, now, Collections.emptySet());
+
+        AtomicInteger cacheHits = new AtomicInteger();
+        AtomicInteger cacheMisses = new AtomicInteger();
+        Map<BundleEntry, LoadedFile> readAhead = new IdentityHashMap<>();
+        if (files.size() < selected.size()) {
+            progress.setIndeterminate(false);
+            files = repackReadable(selected, files, options, now, cache, cacheHits, cacheMisses, readAhead, progress);
+        }
+        int omittedFiles = selected.size() - files.size();
+
+        int skippedBinary = 0;
+        int skippedIgnored = 0;
+        int unreadable = 0;
+        boolean truncated = false;
+        int copiedFiles = 0;
+        long totalTokens = 0;
+        long contentCharsBefore = 0;
+        long contentCharsAfter = 0;
+        List<BundleResult.FileStat> fileStats = new ArrayList<>();
+
+        progress.setIndeterminate(false);
+        long bytesRead = 0;
+
+        // Files are loaded/decoded/scanned in parallel; output is assembled here in sorted order,
+        // so truncation always lands on the same file regardless of scheduling.
+        try (OrderedParallelLoader<BundleEntry, LoadedFile> loader = new OrderedParallelLoader<>(
+                files, fe -> {
+                    LoadedFile ahead = readAhead.get(fe);
+                    return ahead != null ? ahead : loadFile(fe, options, cache, cacheHits, cacheMisses);
+                }, executor, window, progress)) {
+
+            for (int i = 0; i < files.size(); i++) {
+                BundleEntry fe = files.get(i);
+                progress.setText(String.format("Bundling files (%d/%d)", i, files.size()));
+                progress.setDetails(fe.path + " | " + formatSize(bytesRead) + " read");
+                progress.setFraction(i / (double) files.size());
+
+                LoadedFile loaded = loader.get(i);
+                bytesRead += loaded.byteCount;
+
+                if (loaded.status == LoadedFile.Status.IGNORED) {
+                    skippedIgnored++;
+                    continue;
+                }
+                if (loaded.status == LoadedFile.Status.BINARY) {
+                    skippedBinary++;
+                    continue;
+                }
+                if (loaded.status == LoadedFile.Status.UNREADABLE) {
+                    unreadable++;
+                    continue;
+                }
+
+                CharSequence content = loaded.content;
+                String fence = loaded.fence;
+                String separator = out.isEmpty() ? "" : "\n\n";
+                String header = "### " + fe.path + (loaded.outline ? " (outline)" : "") + "\n" + fence + loaded.lang + "\n";
+                int headerTokens = estimator.estimate(header) + 2;
+                boolean closeLine = content.length() == 0 || content.charAt(content.length() - 1) != '\n';
+
+                long blockChars = separator.length() + header.length() + content.length()
+                        + (closeLine ? 1 : 0) + fence.length();
+                long blockTokens = loaded.tokens + headerTokens;
+                boolean fits = out.length() + blockChars + TRUNCATION_NOTE_CHARS <= budget.maxChars
+                        && totalTokens + blockTokens + TRUNCATION_NOTE_TOKENS <= maxTokens;
+
+                if (!fits && copiedFiles > 0) {
+                    // Estimates were off: leave this file out whole, smaller ones after it may still fit
+                    omittedFiles++;
+                    continue;
+                }
+
+                out.append(separator).append(header);
+                if (!fits) {
+                    // The first file alone exceeds the budget: keep as much of its head as fits
+                    long take = Math.max(0, budget.maxChars - out.length() - TRUNCATION_NOTE_CHARS);
+                    long tokenRoom = maxTokens - totalTokens - headerTokens - TRUNCATION_NOTE_TOKENS;
+                    if (loaded.tokens > tokenRoom) {
+                        take = Math.min(take, Math.max(0, content.length() * tokenRoom / loaded.tokens));
+                    }
+                    int end = (int) Math.min(take, content.length());
+                    out.append(content, 0, end);
+                    if (!out.endsWithNewline()) out.append("\n");
+                    out.append("[TRUNCATED: exceeded ").append(budget.hasTokenLimit() ? "token" : "char")
+                            .append(" budget]\n");
+                    out.append(fence);
+
+                    int partTokens = estimator.estimate(content, 0, end);
+                    totalTokens += headerTokens + partTokens;
+                    contentCharsBefore += loaded.originalLength;
+                    contentCharsAfter += end;
+                    fileStats.add(new BundleResult.FileStat(fe.path, end, partTokens, true));
+                    copiedFiles++;
+                    // Nothing after the cut file is read; count it all as left out
+                    omittedFiles += files.size() - i - 1;
+                    truncated = true;
+                    break;
+                }
+
+                out.append(content);
+                if (closeLine) out.append("\n");
+                out.append(fence);
+
+                totalTokens += blockTokens;
+                contentCharsBefore += loaded.originalLength;
+                contentCharsAfter += content.length();
+                fileStats.add(new BundleResult.FileStat(fe.path, content.length(), loaded.tokens, false));
+                copiedFiles++;
+            }
+        }
+
+        if (omittedFiles > 0) {
+            out.append("\n\n[TRUNCATED: ").append(String.valueOf(omittedFiles))
+                    .append(" file(s) left out to fit the budget]\n");
+            truncated = true;
+        }
+
+        out.flush();
+        progress.setFraction(1.0);
+        return new BundleResult(copiedFiles, skippedIgnored, skippedBinary, unreadable, truncated, out.length(),
+                cacheHits.get(), cacheMisses.get(), totalTokens, fileStats, omittedFiles,
+                contentCharsBefore, contentCharsAfter);
+    }
+
+    /**
+     * The packer sizes files from metadata, so a file the binary sniff rejects would hold room that text files
+     * could use. When the budget binds, reads the plan ahead into {@code readAhead} (the plan fits the budget, so
+     * this stays bounded), charges nothing for the files that turn out binary or unreadable and packs again,
+     * until a plan holds no unread files.
+     */
+    private List<BundleEntry> repackReadable(List<BundleEntry> selected, List<BundleEntry> plan,
+                                             BundleOptions options, long now, @Nullable BlockCache cache,
+                                             AtomicInteger cacheHits, AtomicInteger cacheMisses,
+                                             Map<BundleEntry, LoadedFile> readAhead, BundleProgress progress) {
+        Set<BundleEntry> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (true) {
+            List<BundleEntry> unread = new ArrayList<>();
+            for (BundleEntry fe : plan) {
+                if (!readAhead.containsKey(fe)) unread.add(fe);
+            }
+            boolean freed = false;
+            try (OrderedParallelLoader<BundleEntry, LoadedFile> loader = new OrderedParallelLoader<>(
+                    unread, fe -> loadFile(fe, options, cache, cacheHits, cacheMisses), executor, window, progress)) {
+                for (int i = 0; i < unread.size(); i++) {
+                    progress.setText(String.format("Reading files (%d/%d)", i, unread.size()));
+                    progress.setFraction(i / (double) unread.size());
+                    LoadedFile loaded = loader.get(i);
+                    readAhead.put(unread.get(i), loaded);
+                    if (loaded.status != LoadedFile.Status.TEXT && skipped.add(unread.get(i))) freed = true;
+                }
+            }
+            // Every round skips at least one more file, so this ends after at most selected.size() rounds
+            if (!freed) return plan;
+            plan = BundlePacker.pack(selected, options.budget, options.openFiles, now, skipped);
+            // Drop text read for files the new plan left out
+            Set<BundleEntry> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+            kept.addAll(plan);
+            readAhead.keySet().retainAll(kept);
+        }
+    }
+
+    private static List<BundleEntry> collect(FileSource source, BundleProgress progress) throws IOException {
+        List<BundleEntry> collected = Collections.synchronizedList(new ArrayList<>());
+        source.collect((file, path, explicit, outline) -> collected.add(new BundleEntry(file, path, explicit, outline)),
+                progress);
+        return new ArrayList<>(collected);
+    }
+
+    /**
+     * Everything that can be done for one file without knowing its place in the output:
+     * ignore check, single read, binary sniff, decode, compaction or outline, fence and language.
+     * Runs on loader threads.
+     */
+    private static LoadedFile loadFile(BundleEntry fe, BundleOptions options, @Nullable BlockCache cache,
+                                       AtomicInteger cacheHits, AtomicInteger cacheMisses) {
+        BundleFile file = fe.file;
+
+        if (!file.isValid() || FileRules.shouldIgnoreFile(file.getExtension(), file.getLength())) {
+            return LoadedFile.IGNORED;
+        }
+        OutlineProvider outline = fe.outline ? options.outline : null;
+        int variant = outline != null ? OUTLINE_VARIANT : options.compaction.mask();
+        if (cache == null) return readFile(file, options.compaction, outline, variant);
+
+        LoadedFile cached = cache.get(file, variant);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        cacheMisses.incrementAndGet();
+        LoadedFile loaded = readFile(file, options.compaction, outline, variant);
+        if (loaded.status != LoadedFile.Status.UNREADABLE) cache.put(file, loaded);
+        return loaded;
+    }
+
+    private static LoadedFile readFile(BundleFile file, CompactionOptions compaction, @Nullable OutlineProvider outline,
+                                       int variant) {
+        // One read per file: the binary sniff runs on the head of the loaded bytes
+        byte[] bytes;
+        try {
+            bytes = file.contentsToByteArray();
+        } catch (IOException e) {
+            // Counted apart from binary skips so a failed read is not mistaken for a deliberate skip
+            return LoadedFile.UNREADABLE;
+        }
+        if (FileRules.isProbablyBinary(bytes, bytes.length)) {
+            return new LoadedFile(LoadedFile.Status.BINARY, bytes.length, "", "", "", 0, 0, variant, false);
+        }
+
+        CharSequence content = TextDecoder.forCurrentThread().decode(bytes, file.getCharset());
+        int originalLength = content.length();
+        // Languages without a structure view fall back to the full (compacted) text
+        CharSequence outlined = outline != null ? outline.outline(file) : null;
+        content = outlined != null
+                ? outlined
+                : ContentCompactor.compact(content, ContentCompactor.Syntax.forExtension(file.getExtension()), compaction);
+
+        // -------- Auto-safe fence: avoid ``` in content breaking Markdown --------
+        String fence = makeSafeFence(content); // e.g. "```" or "````" or more
+        String lang = fenceLanguage(file.getExtension());
+        int tokens = TokenEstimator.DEFAULT.estimate(content);
+        return new LoadedFile(LoadedFile.Status.TEXT, bytes.length, content, fence, lang, tokens,
+                originalLength, variant, outlined != null);
+    }
+
+    /**
+     * Returns a fence that won't conflict with content inside.
+     * Rule: find the longest consecutive backtick run length maxTicks in content,
+     * fence length = max(3, maxTicks + 1).
+     */
+    static String makeSafeFence(CharSequence content) {
+        int maxTicks = longestBacktickRun(content);
+        int fenceLen = Math.max(3, maxTicks + 1);
+        StringBuilder sb = new StringBuilder(fenceLen);
+        for (int i = 0; i < fenceLen; i++) sb.append('`');
+        return sb.toString();
+    }
+
+    private static int longestBacktickRun(CharSequence s) {
+        int best = 0;
+        int cur = 0;
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) == '`') {
+                cur++;
+                if (cur > best) best = cur;
+            } else {
+                cur = 0;
+            }
+        }
+        return best;
+    }
+
+    /** Markdown language tag for a file extension; empty if unknown. */
+    static String fenceLanguage(@Nullable String ext) {
+        if (ext == null) return "";
+        ext = ext.toLowerCase(Locale.ROOT);
+
+        switch (ext) {
+            case "java": return "java";
+            case "kt":
+            case "kts": return "kotlin";
+            case "py": return "python";
+            case "js": return "javascript";
+            case "ts": return "typescript";
+            case "jsx": return "jsx";
+            case "tsx": return "tsx";
+            case "go": return "go";
+            case "rs": return "rust";
+            case "c":
+            case "h": return "c";
+            case "cpp":
+            case "hpp": return "cpp";
+            case "cs": return "csharp";
+            case "php": return "php";
+            case "rb": return "ruby";
+            case "swift": return "swift";
+            case "scala": return "scala";
+            case "sql": return "sql";
+            case "xml": return "xml";
+            case "yml":
+            case "yaml": return "yaml";
+            case "json": return "json";
+            case "md": return "markdown";
+            case "html": return "html";
+            case "css": return "css";
+            case "sh": return "bash";
+            default: return "";
+        }
+    }
+
+    /** "12.3 MB"-style size for progress text. */
+    static String formatSize(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        String[] units = {"KB", "MB", "GB", "TB"};
+        double value = bytes;
+        int unit = -1;
+        do {
+            value /= 1024;
+            unit++;
+        } while (value >= 1024 && unit < units.length - 1);
+        return String.format(Locale.ROOT, "%.1f %s", value, units[unit]);
+    }
+}
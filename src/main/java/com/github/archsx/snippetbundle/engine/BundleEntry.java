@@ -0,0 +1,22 @@
+package com.github.archsx.snippetbundle.engine;
+
+import java.util.Locale;
+
+/** One collected file and where it goes in the bundle. */
+final class BundleEntry {
+    final BundleFile file;
+    final String path;
+    /** Lowercased {@link #path}; bundles are ordered by it. Computed once, not per comparison. */
+    final String sortKey;
+    final boolean explicit;
+    /** The file or a folder above it is in outline mode. */
+    final boolean outline;
+
+    BundleEntry(BundleFile file, String path, boolean explicit, boolean outline) {
+        this.file = file;
+        this.path = path;
+        this.sortKey = path.toLowerCase(Locale.ROOT);
+        this.explicit = explicit;
+        this.outline = outline;
+    }
+}
@@ -0,0 +1,39 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * A regular file as the bundle engine sees it, independent of where it lives (IDE VFS, local disk, ...).
+ * Metadata getters must be cheap, ideally values captured while the file was found; only
+ * {@link #contentsToByteArray()} may do I/O. Called from loader threads.
+ * <p>
+ * Equality identifies the underlying file, so open-file sets and caches can be keyed by it.
+ */
+public interface BundleFile {
+
+    @NotNull String getName();
+
+    /** Extension without the dot, or null if the name has none. */
+    @Nullable String getExtension();
+
+    /** Size in bytes. */
+    long getLength();
+
+    /** Last modification time, milliseconds since the epoch. */
+    long getTimeStamp();
+
+    /** Charset used to decode the content. */
+    @NotNull Charset getCharset();
+
+    /** The whole file; one call per bundle run. */
+    byte @NotNull [] contentsToByteArray() throws IOException;
+
+    /** False once the file is known to be gone; such files are skipped. */
+    default boolean isValid() {
+        return true;
+    }
+}
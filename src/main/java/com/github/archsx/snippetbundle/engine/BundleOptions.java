@@ -0,0 +1,44 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Everything that shapes one bundle run besides the files themselves. Immutable; {@code with...} returns a copy.
+ */
+public final class BundleOptions {
+
+    public final BundleBudget budget;
+    /** Files open in an editor; they are kept first when the selection does not fit the budget. */
+    public final Set<? extends BundleFile> openFiles;
+    public final CompactionOptions compaction;
+    /** Renders files in outline mode; null when there is none (they are copied whole). */
+    public final @Nullable OutlineProvider outline;
+
+    public BundleOptions(@NotNull BundleBudget budget, @NotNull Set<? extends BundleFile> openFiles,
+                         @NotNull CompactionOptions compaction, @Nullable OutlineProvider outline) {
+        this.budget = budget;
+        this.openFiles = openFiles;
+        this.compaction = compaction;
+        this.outline = outline;
+    }
+
+    public static @NotNull BundleOptions of(@NotNull BundleBudget budget) {
+        return new BundleOptions(budget, Collections.emptySet(), CompactionOptions.NONE, null);
+    }
+
+    public @NotNull BundleOptions withOpenFiles(@NotNull Set<? extends BundleFile> openFiles) {
+        return new BundleOptions(budget, openFiles, compaction, outline);
+    }
+
+    public @NotNull BundleOptions withCompaction(@NotNull CompactionOptions compaction) {
+        return new BundleOptions(budget, openFiles, compaction, outline);
+    }
+
+    public @NotNull BundleOptions withOutline(@Nullable OutlineProvider outline) {
+        return new BundleOptions(budget, openFiles, compaction, outline);
+    }
+}
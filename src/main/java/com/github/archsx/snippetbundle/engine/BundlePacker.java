@@ -0,0 +1,119 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks which collected files go into a bundle that would not fit its budget as a whole.
+ * <p>
+ * Sizes are estimated from file metadata without reading content (length in bytes ~ chars). Files are ranked by
+ * relevance (dropped explicitly, open in an editor, recently modified, small) and packed greedily: each file
+ * is taken if it still fits, so one large file does not push out many small, relevant ones.
+ * The chosen files keep their original (path) order. Files the renderer will skip cost nothing: those ignored by
+ * {@link FileRules} on metadata alone, and those the caller already read and found binary or unreadable.
+ * <p>
+ * This is a greedy approximation of the knapsack, not an exact solution, on purpose. The scores are priorities:
+ * an explicitly dropped file should beat any number of small unrelated ones, while a knapsack maximizing the
+ * score sum would trade it for them. An exact DP over capacities of millions of chars would also cost more than
+ * the bundle itself; ranking is O(n log n) and runs before any file is read.
+ */
+final class BundlePacker {
+
+    // "### path" line, fences, language tag, separators
+    private static final int BLOCK_OVERHEAD_CHARS = 24;
+    private static final long RECENT_WINDOW_MS = 24L * 60 * 60 * 1000;
+    private static final long SMALL_FILE_CHARS = 64L * 1024;
+    // An outline keeps roughly a tenth of the source
+    private static final double OUTLINE_SHARE = 0.1;
+
+    private static final double SCORE_EXPLICIT = 1000;
+    private static final double SCORE_OPEN = 500;
+    private static final double SCORE_RECENT = 200;
+    private static final double SCORE_SMALL = 100;
+
+    private BundlePacker() {}
+
+    /**
+     * Returns {@code files} unchanged if they all fit, otherwise the packed subset in the original order.
+     * Entries in {@code skipped} are known not to produce a block; they are kept but charged nothing.
+     */
+    static @NotNull List<BundleEntry> pack(@NotNull List<BundleEntry> files,
+                                           @NotNull BundleBudget budget,
+                                           @NotNull Set<? extends BundleFile> openFiles,
+                                           long now,
+                                           @NotNull Set<BundleEntry> skipped) {
+        int n = files.size();
+        long[] chars = new long[n];
+        long[] tokens = new long[n];
+        long totalChars = 0;
+        long totalTokens = 0;
+        for (int i = 0; i < n; i++) {
+            BundleEntry fe = files.get(i);
+            if (skipped.contains(fe) || !fe.file.isValid()
+                    || FileRules.shouldIgnoreFile(fe.file.getExtension(), fe.file.getLength())) {
+                continue;
+            }
+            long content = fe.outline ? (long) (fe.file.getLength() * OUTLINE_SHARE) : fe.file.getLength();
+            chars[i] = content + fe.path.length() + BLOCK_OVERHEAD_CHARS;
+            tokens[i] = TokenEstimator.fromLength(chars[i]);
+            totalChars += chars[i];
+            totalTokens += tokens[i];
+        }
+        long maxTokens = budget.hasTokenLimit() ? budget.maxTokens : Long.MAX_VALUE;
+        if (totalChars <= budget.maxChars && totalTokens <= maxTokens) return files;
+
+        double[] score = new double[n];
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            score[i] = score(files.get(i), chars[i], openFiles, now);
+            order[i] = i;
+        }
+        // Best first; among equals prefer the cheaper file, then keep path order for determinism
+        Arrays.sort(order, Comparator.<Integer>comparingDouble(i -> -score[i])
+                .thenComparingLong(i -> chars[i])
+                .thenComparingInt(i -> i));
+
+        boolean[] take = new boolean[n];
+        boolean anyCharged = false;
+        long charRoom = budget.maxChars;
+        long tokenRoom = maxTokens;
+        for (int i : order) {
+            if (chars[i] <= charRoom && tokens[i] <= tokenRoom) {
+                take[i] = true;
+                anyCharged |= chars[i] > 0;
+                charRoom -= chars[i];
+                tokenRoom -= tokens[i];
+            }
+        }
+        // Nothing fits on its own: fall back to the best file so the renderer can keep its head
+        if (!anyCharged) {
+            for (int i : order) {
+                if (chars[i] > 0) {
+                    take[i] = true;
+                    break;
+                }
+            }
+        }
+
+        List<BundleEntry> packed = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            if (take[i]) packed.add(files.get(i));
+        }
+        return packed;
+    }
+
+    private static double score(BundleEntry fe, long chars, Set<? extends BundleFile> openFiles, long now) {
+        double s = 0;
+        if (fe.explicit) s += SCORE_EXPLICIT;
+        if (openFiles.contains(fe.file)) s += SCORE_OPEN;
+        long age = now - fe.file.getTimeStamp();
+        if (age >= 0 && age < RECENT_WINDOW_MS) s += SCORE_RECENT * (1 - age / (double) RECENT_WINDOW_MS);
+        s += SCORE_SMALL * (1 - Math.min(1.0, chars / (double) SMALL_FILE_CHARS));
+        return s;
+    }
+}
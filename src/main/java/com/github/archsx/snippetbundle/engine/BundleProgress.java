@@ -0,0 +1,42 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * Progress reporting and cancellation for a bundle run. Every method has a no-op default, so a headless
+ * caller only overrides what it needs; the IDE adapts its progress indicator.
+ */
+public interface BundleProgress {
+
+    BundleProgress NONE = new BundleProgress() {};
+
+    /** Throws an unchecked exception if the run was cancelled. */
+    default void checkCanceled() {
+    }
+
+    default void setText(@NotNull String text) {
+    }
+
+    /** Secondary line, e.g. the current file. */
+    default void setDetails(@NotNull String details) {
+    }
+
+    default void setFraction(double fraction) {
+    }
+
+    default void setIndeterminate(boolean indeterminate) {
+    }
+
+    /** Runs {@code work} on a loader thread so that it observes this run's cancellation. */
+    default <T> T runOnWorker(@NotNull Supplier<T> work) {
+        return work.get();
+    }
+
+    /** Exception to throw when the caller's thread is interrupted while waiting for a worker. */
+    default @NotNull RuntimeException canceled() {
+        return new CancellationException();
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+
+/** What one bundle run wrote. */
+public final class BundleResult {
+    public final int copiedFiles;
+    public final int skippedIgnored;
+    public final int skippedBinary;
+    /** Files whose read failed with an I/O error; not part of the bundle. */
+    public final int unreadable;
+    public final boolean truncated;
+    public final long totalChars;
+    public final int cacheHits;
+    public final int cacheMisses;
+    /** Estimated tokens of the whole bundle, headers and fences included. */
+    public final long totalTokens;
+    /** One entry per file written, in output order. */
+    public final List<FileStat> files;
+    /** Text files left out because the budget was used up. */
+    public final int omittedFiles;
+    /** Content chars of the written files as read, and after compaction; equal when compaction is off. */
+    public final long contentCharsBefore;
+    public final long contentCharsAfter;
+
+    public BundleResult(int copiedFiles, int skippedIgnored, int skippedBinary, int unreadable, boolean truncated,
+                        long totalChars, int cacheHits, int cacheMisses, long totalTokens,
+                        @NotNull List<FileStat> files, int omittedFiles, long contentCharsBefore, long contentCharsAfter) {
+        this.copiedFiles = copiedFiles;
+        this.skippedIgnored = skippedIgnored;
+        this.skippedBinary = skippedBinary;
+        this.unreadable = unreadable;
+        this.truncated = truncated;
+        this.totalChars = totalChars;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+        this.totalTokens = totalTokens;
+        this.files = Collections.unmodifiableList(files);
+        this.omittedFiles = omittedFiles;
+        this.contentCharsBefore = contentCharsBefore;
+        this.contentCharsAfter = contentCharsAfter;
+    }
+
+    /** Size of one file as written into the bundle. */
+    public static final class FileStat {
+        public final String path;
+        public final int chars;
+        public final int tokens;
+        /** Only the head of the file made it into the bundle. */
+        public final boolean partial;
+
+        public FileStat(@NotNull String path, int chars, int tokens, boolean partial) {
+            this.path = path;
+            this.chars = chars;
+            this.tokens = tokens;
+            this.partial = partial;
+        }
+    }
+}
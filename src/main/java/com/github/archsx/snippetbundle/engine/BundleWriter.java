@@ -0,0 +1,77 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Fixed-size buffered writer that tracks how many chars have been emitted and the last char written,
+ * so the engine can apply its size limit and newline rules without ever materializing the output.
+ */
+final class BundleWriter {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Writer out;
+    private final char[] buf = new char[BUFFER_SIZE];
+    private int pos;
+    private long length;
+    private char last;
+
+    BundleWriter(@NotNull Writer out) {
+        this.out = out;
+    }
+
+    long length() {
+        return length;
+    }
+
+    boolean isEmpty() {
+        return length == 0;
+    }
+
+    boolean endsWithNewline() {
+        return length > 0 && last == '\n';
+    }
+
+    BundleWriter append(char c) throws IOException {
+        if (pos == buf.length) flushBuffer();
+        buf[pos++] = c;
+        length++;
+        last = c;
+        return this;
+    }
+
+    BundleWriter append(@NotNull CharSequence s) throws IOException {
+        return append(s, 0, s.length());
+    }
+
+    BundleWriter append(@NotNull CharSequence s, int start, int end) throws IOException {
+        int i = start;
+        while (i < end) {
+            if (pos == buf.length) flushBuffer();
+            int n = Math.min(end - i, buf.length - pos);
+            for (int k = 0; k < n; k++) buf[pos + k] = s.charAt(i + k);
+            pos += n;
+            i += n;
+        }
+        if (end > start) {
+            length += end - start;
+            last = s.charAt(end - 1);
+        }
+        return this;
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+}
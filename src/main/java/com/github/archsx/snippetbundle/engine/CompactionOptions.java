@@ -0,0 +1,34 @@
+package com.github.archsx.snippetbundle.engine;
+
+/**
+ * Which compaction passes {@link ContentCompactor} applies to file content. Immutable.
+ */
+public final class CompactionOptions {
+
+    public static final CompactionOptions NONE = new CompactionOptions(false, false, false, false);
+
+    public final boolean stripLicenseHeader;
+    public final boolean stripComments;
+    public final boolean collapseBlankLines;
+    public final boolean trimTrailingWhitespace;
+
+    public CompactionOptions(boolean stripLicenseHeader, boolean stripComments,
+                             boolean collapseBlankLines, boolean trimTrailingWhitespace) {
+        this.stripLicenseHeader = stripLicenseHeader;
+        this.stripComments = stripComments;
+        this.collapseBlankLines = collapseBlankLines;
+        this.trimTrailingWhitespace = trimTrailingWhitespace;
+    }
+
+    public boolean isEnabled() {
+        return stripLicenseHeader || stripComments || collapseBlankLines || trimTrailingWhitespace;
+    }
+
+    /** Compact identity of these options; part of the cache key of a rendered file. */
+    int mask() {
+        return (stripLicenseHeader ? 1 : 0)
+                | (stripComments ? 2 : 0)
+                | (collapseBlankLines ? 4 : 0)
+                | (trimTrailingWhitespace ? 8 : 0);
+    }
+}
@@ -0,0 +1,358 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Shrinks file content before it goes into a bundle: drops a leading license header, strips comments,
+ * collapses runs of blank lines and trims trailing whitespace.
+ * <p>
+ * The passes are chained filters over one forward scan: the license header is cut out as a view over the input,
+ * the comment scanner feeds a {@link LineSink}, and the sink trims and collapses each line in place as it ends.
+ * The only copy made is the output buffer.
+ * <p>
+ * Comment stripping is lexical, not a parse: it knows the comment and string syntax of a language family
+ * and never touches anything inside a string literal. Unknown file types only get the whitespace passes.
+ */
+public final class ContentCompactor {
+
+    /** Comment and string syntax of a language family. */
+    public enum Syntax {
+        C_LIKE("//", "/*", "*/", "\"'`"),
+        HASH("#", null, null, "\"'"),
+        SQL("--", "/*", "*/", "'\""),
+        CSS(null, "/*", "*/", "\"'"),
+        MARKUP(null, "<!--", "-->", ""),
+        NONE(null, null, null, "");
+
+        final String lineComment;
+        final String blockStart;
+        final String blockEnd;
+        final String quotes;
+
+        Syntax(String lineComment, String blockStart, String blockEnd, String quotes) {
+            this.lineComment = lineComment;
+            this.blockStart = blockStart;
+            this.blockEnd = blockEnd;
+            this.quotes = quotes;
+        }
+
+        public static @NotNull Syntax forExtension(@Nullable String extension) {
+            if (extension == null) return NONE;
+            switch (extension.toLowerCase(Locale.ROOT)) {
+                case "java": case "kt": case "kts": case "scala": case "groovy": case "gradle":
+                case "js": case "jsx": case "ts": case "tsx": case "mjs": case "cjs":
+                case "c": case "h": case "cpp": case "hpp": case "cc": case "cs":
+                case "go": case "rs": case "swift": case "dart": case "php": case "proto":
+                    return C_LIKE;
+                case "py": case "rb": case "sh": case "bash": case "zsh": case "pl":
+                case "yml": case "yaml": case "toml": case "properties": case "r":
+                    return HASH;
+                case "sql":
+                    return SQL;
+                case "css": case "scss": case "less":
+                    return CSS;
+                case "xml": case "html": case "htm": case "vue": case "svg":
+                    return MARKUP;
+                default:
+                    return NONE;
+            }
+        }
+    }
+
+    private static final Pattern LICENSE_WORDS =
+            Pattern.compile("copyright|licen[cs]e|spdx-license", Pattern.CASE_INSENSITIVE);
+
+    private ContentCompactor() {}
+
+    /** Returns {@code text} itself when {@code options} enable nothing. */
+    public static @NotNull CharSequence compact(@NotNull CharSequence text, @NotNull Syntax syntax,
+                                                @NotNull CompactionOptions options) {
+        if (!options.isEnabled()) return text;
+        CharSequence s = options.stripLicenseHeader ? stripLicenseHeader(text, syntax) : text;
+        LineSink out = new LineSink(s.length(), options.collapseBlankLines, options.trimTrailingWhitespace);
+        if (options.stripComments && (syntax.lineComment != null || syntax.blockStart != null)) {
+            stripComments(s, syntax, out);
+        } else {
+            out.append(s, 0, s.length());
+        }
+        return out.finish();
+    }
+
+    // -------- License header --------
+
+    /**
+     * Removes the first comment of the file if it reads like a license/copyright notice.
+     * Returns a view over {@code s} with the header cut out, not a copy.
+     */
+    static CharSequence stripLicenseHeader(CharSequence s, Syntax syntax) {
+        int n = s.length();
+        int from = 0;
+        if (n > 0 && s.charAt(0) == '\uFEFF') from++;
+        if (startsWith(s, from, "#!")) from = lineEnd(s, from) + 1; // keep the shebang
+        if (from >= n) return s;
+        from = skipWhitespace(s, from);
+
+        int to;
+        if (syntax.blockStart != null && startsWith(s, from, syntax.blockStart)) {
+            int close = indexOf(s, syntax.blockEnd, from + syntax.blockStart.length());
+            if (close < 0) return s;
+            to = close + syntax.blockEnd.length();
+        } else if (syntax.lineComment != null && startsWith(s, from, syntax.lineComment)) {
+            to = from;
+            // A run of line comments, e.g. "# Copyright ..." lines
+            while (to < n) {
+                int first = skipBlanks(s, to);
+                if (!startsWith(s, first, syntax.lineComment)) break;
+                to = Math.min(n, lineEnd(s, first) + 1);
+            }
+        } else {
+            return s;
+        }
+        if (!LICENSE_WORDS.matcher(s.subSequence(from, to)).find()) return s;
+
+        return new Spliced(s, from, skipWhitespace(s, to));
+    }
+
+    /** {@code s} without the chars in [{@code from}, {@code to}). */
+    private static final class Spliced implements CharSequence {
+        private final CharSequence s;
+        private final int from;
+        private final int gap;
+
+        Spliced(CharSequence s, int from, int to) {
+            this.s = s;
+            this.from = from;
+            this.gap = to - from;
+        }
+
+        @Override
+        public int length() {
+            return s.length() - gap;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return s.charAt(index < from ? index : index + gap);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new StringBuilder(end - start).append(this, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+
+    // -------- Comments --------
+
+    public static @NotNull CharSequence stripComments(CharSequence s, Syntax syntax) {
+        LineSink out = new LineSink(s.length(), false, false);
+        stripComments(s, syntax, out);
+        return out.finish();
+    }
+
+    private static void stripComments(CharSequence s, Syntax syntax, LineSink out) {
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char c = s.charAt(i);
+
+            if (syntax.quotes.indexOf(c) >= 0) {
+                int end = skipLiteral(s, i, syntax);
+                out.append(s, i, end);
+                i = end;
+                continue;
+            }
+
+            int commentEnd = -1;
+            boolean keepNewline = false;
+            if (syntax.lineComment != null && startsWith(s, i, syntax.lineComment) && startsLineComment(s, i, syntax)) {
+                commentEnd = lineEnd(s, i);
+                keepNewline = true;
+            } else if (syntax.blockStart != null && startsWith(s, i, syntax.blockStart)) {
+                int close = indexOf(s, syntax.blockEnd, i + syntax.blockStart.length());
+                commentEnd = close < 0 ? n : close + syntax.blockEnd.length();
+            }
+            if (commentEnd < 0) {
+                out.append(c);
+                i++;
+                continue;
+            }
+
+            // A comment that fills its lines disappears together with them
+            int next = skipBlanks(s, commentEnd);
+            boolean aloneOnLine = out.isLineBlank() && (next >= n || s.charAt(next) == '\n');
+            if (aloneOnLine) {
+                out.dropLine();
+                i = next < n ? next + 1 : n;
+            } else {
+                // Keep tokens apart: "a/* x */b" must not become "ab"
+                if (!keepNewline) out.append(' ');
+                i = commentEnd;
+            }
+        }
+    }
+
+    private static boolean startsLineComment(CharSequence s, int i, Syntax syntax) {
+        if (syntax != Syntax.HASH) return true;
+        // Shell/YAML: '#' opens a comment only at a word boundary ("${#x}", "a#b" are not comments)
+        if (i == 0) return !startsWith(s, 0, "#!");
+        char prev = s.charAt(i - 1);
+        return prev == ' ' || prev == '\t' || prev == '\n' || prev == '\r';
+    }
+
+    /** Index just past the string/char literal starting at {@code i}, or {@code i + 1} if it is not one. */
+    private static int skipLiteral(CharSequence s, int i, Syntax syntax) {
+        int n = s.length();
+        char q = s.charAt(i);
+        if (q != '`' && i + 2 < n && s.charAt(i + 1) == q && s.charAt(i + 2) == q) {
+            // Text block / docstring: runs to the next triple quote
+            for (int j = i + 3; j + 2 < n; j++) {
+                if (s.charAt(j) == q && s.charAt(j + 1) == q && s.charAt(j + 2) == q) return j + 3;
+            }
+            return n;
+        }
+        if (q == '\'' && syntax == Syntax.C_LIKE && !isCharLiteral(s, i)) {
+            return i + 1; // Rust lifetimes, apostrophes in odd places
+        }
+        int j = i + 1;
+        while (j < n) {
+            char ch = s.charAt(j);
+            if (ch == '\\') {
+                j += 2;
+                continue;
+            }
+            if (ch == q) return j + 1;
+            if (ch == '\n' && q != '`') return j; // unterminated: never swallow past the line
+            j++;
+        }
+        return n;
+    }
+
+    private static boolean isCharLiteral(CharSequence s, int i) {
+        int limit = Math.min(s.length(), i + 12);
+        for (int k = i + 1; k < limit; k++) {
+            char ch = s.charAt(k);
+            if (ch == '\n') return false;
+            if (ch == '\\') {
+                k++;
+                continue;
+            }
+            if (ch == '\'') return k > i + 1;
+        }
+        return false;
+    }
+
+    // -------- Lines --------
+
+    /**
+     * Last stage of the chain: collects the output and finishes each line as its newline arrives, trimming trailing
+     * whitespace and collapsing blank runs in place. The current line stays open, so a comment scanner can still
+     * drop it when a comment turns out to fill it.
+     */
+    private static final class LineSink {
+        private final StringBuilder out;
+        private final boolean collapseBlank;
+        private final boolean trimTrailing;
+        private int lineStart;
+        private boolean previousBlank = true; // also drops blank lines at the very top
+
+        LineSink(int capacity, boolean collapseBlank, boolean trimTrailing) {
+            this.out = new StringBuilder(capacity);
+            this.collapseBlank = collapseBlank;
+            this.trimTrailing = trimTrailing;
+        }
+
+        void append(char c) {
+            if (c == '\n') endLine(true);
+            else out.append(c);
+        }
+
+        void append(CharSequence s, int from, int to) {
+            for (int i = from; i < to; i++) append(s.charAt(i));
+        }
+
+        boolean isLineBlank() {
+            return isBlank(out, lineStart, out.length());
+        }
+
+        /** Forgets the open line; its newline is not emitted either. */
+        void dropLine() {
+            out.setLength(lineStart);
+        }
+
+        private void endLine(boolean newline) {
+            boolean blank = isLineBlank();
+            if (collapseBlank && blank && previousBlank) {
+                out.setLength(lineStart);
+            } else {
+                int end = out.length();
+                if (trimTrailing || (blank && collapseBlank)) {
+                    while (end > lineStart && isBlankChar(out.charAt(end - 1))) end--;
+                }
+                out.setLength(end);
+                if (newline) out.append('\n');
+            }
+            previousBlank = blank;
+            lineStart = out.length();
+        }
+
+        CharSequence finish() {
+            if (out.length() > lineStart) endLine(false);
+            return out;
+        }
+    }
+
+    // -------- Helpers --------
+
+    private static boolean startsWith(CharSequence s, int i, String prefix) {
+        if (i + prefix.length() > s.length()) return false;
+        for (int k = 0; k < prefix.length(); k++) {
+            if (s.charAt(i + k) != prefix.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence s, String needle, int from) {
+        int last = s.length() - needle.length();
+        for (int i = from; i <= last; i++) {
+            if (startsWith(s, i, needle)) return i;
+        }
+        return -1;
+    }
+
+    /** Index of the '\n' ending the line that contains {@code i}, or the length if it is the last line. */
+    private static int lineEnd(CharSequence s, int i) {
+        int n = s.length();
+        while (i < n && s.charAt(i) != '\n') i++;
+        return i;
+    }
+
+    private static int skipWhitespace(CharSequence s, int i) {
+        while (i < s.length() && (isBlankChar(s.charAt(i)) || s.charAt(i) == '\n')) i++;
+        return i;
+    }
+
+    private static int skipBlanks(CharSequence s, int i) {
+        while (i < s.length() && isBlankChar(s.charAt(i))) i++;
+        return i;
+    }
+
+    private static boolean isBlank(CharSequence s, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isBlankChar(s.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlankChar(char c) {
+        return c == ' ' || c == '\t' || c == '\r';
+    }
+}
@@ -0,0 +1,135 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the bundle as UTF-8 straight to disk through a {@link FileChannel} and a direct buffer,
+ * so bundle size is not bounded by the heap. Output goes to a temp file next to the target,
+ * which only replaces the target on {@link #commit()}; closing without a commit leaves it untouched.
+ */
+public final class FileOutput implements Closeable {
+
+    static final int BUFFER_BYTES = 256 * 1024;
+
+    private final Path target;
+    private final Path temp;
+    private final ChannelWriter writer;
+
+    public FileOutput(@NotNull Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        Path dir = this.target.getParent();
+        Files.createDirectories(dir);
+        this.temp = Files.createTempFile(dir, "." + this.target.getFileName(), ".tmp");
+        this.writer = new ChannelWriter(FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public @NotNull Path getTarget() {
+        return target;
+    }
+
+    public @NotNull Writer writer() {
+        return writer;
+    }
+
+    /** Finishes the file and moves it over the target. */
+    public void commit() throws IOException {
+        writer.close();
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+        Files.deleteIfExists(temp);
+    }
+
+    private static final class ChannelWriter extends Writer {
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private boolean closed;
+        // High surrogate left over at the end of a write, completed by the next one
+        private final CharBuffer pending = CharBuffer.allocate(2);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(char @NotNull [] cbuf, int off, int len) throws IOException {
+            if (closed) throw new IOException("Writer closed");
+            if (len == 0) return;
+            if (pending.position() > 0) {
+                pending.put(cbuf[off]).flip();
+                encode(pending, false);
+                pending.clear();
+                off++;
+                len--;
+            }
+            CharBuffer in = CharBuffer.wrap(cbuf, off, len);
+            encode(in, false);
+            if (in.hasRemaining()) pending.put(in.get());
+        }
+
+        private void encode(CharBuffer in, boolean endOfInput) throws IOException {
+            while (true) {
+                CoderResult r = encoder.encode(in, bytes, endOfInput);
+                if (r.isOverflow()) {
+                    drain();
+                } else if (r.isUnderflow()) {
+                    return;
+                } else {
+                    r.throwException();
+                }
+            }
+        }
+
+        private void drain() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed) return;
+            drain();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            try {
+                pending.flip();
+                encode(pending, true);
+                while (encoder.flush(bytes).isOverflow()) drain();
+                drain();
+            } finally {
+                closed = true;
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Built-in rules for what never goes into a bundle, by name and size alone: build and tool folders,
+ * binary extensions, oversized files. Plus the content sniff for binaries without a telling extension.
+ */
+public final class FileRules {
+
+    // Common "meaningless/huge/generated" directories
+    private static final Set<String> IGNORED_DIR_NAMES = new HashSet<>(Arrays.asList(
+            ".git", ".idea", ".gradle", ".mvn",
+            "node_modules", "dist", "build", "out", "target",
+            ".next", ".nuxt", ".cache", ".sass-cache",
+            ".pytest_cache", "__pycache__",
+            ".vscode"
+    ));
+
+    // Common binary/unsuitable for LLM files
+    private static final Set<String> BINARY_EXTENSIONS = new HashSet<>(Arrays.asList(
+            "class", "jar", "war", "zip", "7z", "rar", "tar", "gz",
+            "png", "jpg", "jpeg", "gif", "webp", "bmp", "ico",
+            "pdf",
+            "mp3", "mp4", "wav", "avi", "mov",
+            "exe", "dll", "so", "dylib"
+    ));
+
+    // Max file size (prevent freeze/clipboard overflow); can be moved to Settings later
+    public static final long MAX_FILE_BYTES = 512L * 1024L; // 512KB
+
+    // Only the head of the file is sampled for the binary heuristic
+    public static final int BINARY_SAMPLE_BYTES = 4096;
+
+    private FileRules() {}
+
+    public static boolean isIgnoredDirName(@NotNull String name) {
+        return IGNORED_DIR_NAMES.contains(name);
+    }
+
+    /** Whether a regular file is skipped: oversized or binary by extension. */
+    public static boolean shouldIgnoreFile(@Nullable String extension, long length) {
+        // Ignore oversized files (default strategy: skip directly)
+        if (length > MAX_FILE_BYTES) return true;
+        return hasBinaryExtension(extension);
+    }
+
+    /** Whether the extension alone marks the file as binary; needs no I/O. */
+    public static boolean hasBinaryExtension(@Nullable String extension) {
+        return extension != null && !extension.isEmpty()
+                && BINARY_EXTENSIONS.contains(extension.toLowerCase(Locale.ROOT));
+    }
+
+    /** Extension of a file name without the dot, or null; same rule as the IDE's. */
+    public static @Nullable String extensionOf(@NotNull String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : name.substring(dot + 1);
+    }
+
+    /**
+     * Content heuristic over bytes that are already in memory; only the first 4KB are inspected.
+     * Lets callers that load the whole file anyway avoid opening it a second time.
+     */
+    public static boolean isProbablyBinary(byte[] data, int length) {
+        int n = Math.min(length, BINARY_SAMPLE_BYTES);
+        if (n <= 0) return false;
+
+        int zeros = 0;
+        int weird = 0;
+
+        for (int i = 0; i < n; i++) {
+            int b = data[i] & 0xFF;
+            if (b == 0) zeros++;
+
+            // Allow: tab(9) / lf(10) / cr(13)
+            if (b < 0x09 || (b > 0x0D && b < 0x20) || b == 0x7F) {
+                weird++;
+            }
+        }
+
+        if (zeros > 0) return true;
+        double weirdRatio = weird / (double) n;
+        return weirdRatio > 0.15;
+    }
+}
@@ -0,0 +1,23 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Where a bundle's files come from: the IDE selection, folders on disk, ... The engine sorts what is collected,
+ * so sources may report files in any order and from any thread, but must not report the same file twice.
+ */
+public interface FileSource {
+
+    void collect(@NotNull Collector out, @NotNull BundleProgress progress) throws IOException;
+
+    interface Collector {
+        /**
+         * @param path     '/'-separated path shown in the bundle, starting with the name of the selected root
+         * @param explicit the user picked this file itself, as opposed to it being found inside a picked folder
+         * @param outline  render declarations only (see {@link OutlineProvider})
+         */
+        void add(@NotNull BundleFile file, @NotNull String path, boolean explicit, boolean outline);
+    }
+}
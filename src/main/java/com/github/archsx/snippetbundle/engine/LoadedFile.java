@@ -0,0 +1,58 @@
+package com.github.archsx.snippetbundle.engine;
+
+import java.nio.CharBuffer;
+
+/**
+ * A file prepared for the bundle: its text plus the fence and language tag that wrap it.
+ * Immutable once built, so it can be shared between bundle runs through a {@link BlockCache}.
+ */
+public final class LoadedFile {
+
+    public enum Status { TEXT, IGNORED, BINARY, UNREADABLE }
+
+    static final LoadedFile IGNORED = new LoadedFile(Status.IGNORED, 0, "", "", "", 0, 0, 0, false);
+    /** The read failed; never cached, the next run tries again. */
+    static final LoadedFile UNREADABLE = new LoadedFile(Status.UNREADABLE, 0, "", "", "", 0, 0, 0, false);
+
+    public final Status status;
+    public final int byteCount;
+    /** Read through {@code charAt}/{@code length} only; never mutate the buffer position. */
+    public final CharSequence content;
+    public final String fence;
+    public final String lang;
+    /** Estimated tokens of {@link #content}, computed once on the loader thread. */
+    public final int tokens;
+    /** Length of the decoded text before compaction; equals {@code content.length()} when none was applied. */
+    public final int originalLength;
+    /** Rendering options the block was built with (compaction mask); a cached block is reused only for the same. */
+    public final int variant;
+    /** {@link #content} is a declaration outline rather than the file text. */
+    public final boolean outline;
+
+    LoadedFile(Status status, int byteCount, CharSequence content, String fence, String lang, int tokens,
+               int originalLength, int variant, boolean outline) {
+        this.status = status;
+        this.byteCount = byteCount;
+        this.content = content;
+        this.fence = fence;
+        this.lang = lang;
+        this.tokens = tokens;
+        this.originalLength = originalLength;
+        this.variant = variant;
+        this.outline = outline;
+    }
+
+    /**
+     * Rough retained size in chars, used for cache accounting. Counts the whole buffer behind {@link #content}:
+     * a compacted slice or an over-allocated builder keeps more alive than its length.
+     */
+    public long weight() {
+        return 64L + retainedChars(content) + fence.length() + lang.length();
+    }
+
+    private static long retainedChars(CharSequence s) {
+        if (s instanceof CharBuffer && ((CharBuffer) s).hasArray()) return ((CharBuffer) s).array().length;
+        if (s instanceof StringBuilder) return ((StringBuilder) s).capacity();
+        return s.length();
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Runs {@code task} over {@code items} on an executor while the caller consumes results strictly in order.
+ * At most {@code window} items are in flight or buffered ahead of the consumer, which bounds memory
+ * no matter how many items there are. Workers run under {@code progress}, so they see its cancellation.
+ */
+final class OrderedParallelLoader<T, R> implements AutoCloseable {
+
+    private static final long POLL_MILLIS = 50;
+
+    private final List<T> items;
+    private final Function<T, R> task;
+    private final ExecutorService executor;
+    private final int window;
+    private final BundleProgress progress;
+    private final List<Future<R>> futures;
+    private int submitted;
+
+    OrderedParallelLoader(@NotNull List<T> items,
+                          @NotNull Function<T, R> task,
+                          @NotNull ExecutorService executor,
+                          int window,
+                          @NotNull BundleProgress progress) {
+        this.items = items;
+        this.task = task;
+        this.executor = executor;
+        this.window = Math.max(1, window);
+        this.progress = progress;
+        this.futures = new ArrayList<>(items.size());
+    }
+
+    /** Result for item {@code index}; indices must be requested in increasing order. */
+    R get(int index) {
+        while (submitted < items.size() && submitted <= index + window) {
+            T item = items.get(submitted);
+            futures.add(executor.submit(() -> {
+                progress.checkCanceled();
+                return progress.runOnWorker(() -> task.apply(item));
+            }));
+            submitted++;
+        }
+
+        Future<R> future = futures.set(index, null); // release the result as soon as the consumer has it
+        while (true) {
+            progress.checkCanceled();
+            try {
+                return future.get(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // poll again so cancellation is noticed promptly
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw progress.canceled();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+                if (cause instanceof Error) throw (Error) cause;
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /** Cancels everything not consumed yet, e.g. after truncation or cancellation. */
+    @Override
+    public void close() {
+        for (int i = 0; i < submitted; i++) {
+            Future<R> f = futures.set(i, null);
+            if (f != null) f.cancel(false);
+        }
+    }
+}
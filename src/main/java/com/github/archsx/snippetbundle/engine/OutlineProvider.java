@@ -0,0 +1,14 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders a file as its declarations with bodies elided, for files collected in outline mode.
+ * Called from loader threads.
+ */
+public interface OutlineProvider {
+
+    /** Outline of {@code file}, or null if none can be built (the file is copied whole). */
+    @Nullable CharSequence outline(@NotNull BundleFile file);
+}
@@ -0,0 +1,77 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file on disk. Size and timestamp are the attributes seen when the file was found, so ranking and
+ * ignore checks never stat it again; only {@link #contentsToByteArray()} touches the disk.
+ */
+public final class PathBundleFile implements BundleFile {
+
+    public final Path path;
+    private final String name;
+    private final long length;
+    private final long timeStamp;
+    private final Charset charset;
+
+    public PathBundleFile(@NotNull Path path, @NotNull BasicFileAttributes attrs, @NotNull Charset charset) {
+        this.path = path;
+        Path fileName = path.getFileName();
+        this.name = fileName != null ? fileName.toString() : path.toString();
+        this.length = attrs.size();
+        this.timeStamp = attrs.lastModifiedTime().toMillis();
+        this.charset = charset;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public @Nullable String getExtension() {
+        return FileRules.extensionOf(name);
+    }
+
+    @Override
+    public long getLength() {
+        return length;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    @Override
+    public @NotNull Charset getCharset() {
+        return charset;
+    }
+
+    @Override
+    public byte @NotNull [] contentsToByteArray() throws IOException {
+        return Files.readAllBytes(path);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PathBundleFile && ((PathBundleFile) o).path.equals(path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path.toString();
+    }
+}
@@ -0,0 +1,269 @@
+package com.github.archsx.snippetbundle.engine;
+
+import com.github.archsx.snippetbundle.ignore.IgnoreRuleSet;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Files and folders on disk, without the IDE. Each folder is listed once with {@link Files#walkFileTree} and
+ * the attributes the listing reads anyway (type, size, timestamp) are kept in each {@link PathBundleFile},
+ * so nothing is stat'ed twice. Folders are walked in parallel, one fork/join task per folder.
+ * <p>
+ * Applies the same rules as the plugin: {@link FileRules}, and optionally ignore files with git semantics
+ * ({@link IgnoreRuleSet#FILE_NAMES} in every folder up to the repository root, plus {@code .git/info/exclude};
+ * deeper rules win). Ignored folders are pruned, not walked. Symbolic links are followed; loops are skipped.
+ * Immutable; {@code with...} returns a copy.
+ */
+public final class PathFileSource implements FileSource {
+
+    // Windows and macOS file systems are case-insensitive by default
+    private static final boolean IGNORE_CASE = !System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux");
+    private static final Set<String> RULE_FILE_NAMES = new HashSet<>(IgnoreRuleSet.FILE_NAMES);
+
+    private final List<Path> roots;
+    private final boolean respectIgnoreFiles;
+    private final IgnoreRuleSet extraRules;
+    private final Charset charset;
+    private final ForkJoinPool pool;
+
+    private PathFileSource(List<Path> roots, boolean respectIgnoreFiles, IgnoreRuleSet extraRules, Charset charset,
+                           ForkJoinPool pool) {
+        this.roots = roots;
+        this.respectIgnoreFiles = respectIgnoreFiles;
+        this.extraRules = extraRules;
+        this.charset = charset;
+        this.pool = pool;
+    }
+
+    /** Walks {@code roots} on the common pool, honouring ignore files, reading content as UTF-8. */
+    public PathFileSource(@NotNull List<Path> roots) {
+        this(roots, true, IgnoreRuleSet.EMPTY, StandardCharsets.UTF_8, ForkJoinPool.commonPool());
+    }
+
+    public @NotNull PathFileSource withIgnoreFiles(boolean respectIgnoreFiles) {
+        return new PathFileSource(roots, respectIgnoreFiles, extraRules, charset, pool);
+    }
+
+    /** Rules applied in every root folder on top of its own ignore files, e.g. excludes given on the command line. */
+    public @NotNull PathFileSource withExtraRules(@NotNull IgnoreRuleSet extraRules) {
+        return new PathFileSource(roots, respectIgnoreFiles, extraRules, charset, pool);
+    }
+
+    public @NotNull PathFileSource withCharset(@NotNull Charset charset) {
+        return new PathFileSource(roots, respectIgnoreFiles, extraRules, charset, pool);
+    }
+
+    /** Pool the folders are listed on; listing is I/O bound, so it may be larger than the core count. */
+    public @NotNull PathFileSource withPool(@NotNull ForkJoinPool pool) {
+        return new PathFileSource(roots, respectIgnoreFiles, extraRules, charset, pool);
+    }
+
+    @Override
+    public void collect(@NotNull Collector out, @NotNull BundleProgress progress) throws IOException {
+        Set<Object> seen = ConcurrentHashMap.newKeySet();
+        for (Path root : roots) {
+            progress.checkCanceled();
+            root = root.toAbsolutePath().normalize();
+            BasicFileAttributes attrs = Files.readAttributes(root, BasicFileAttributes.class);
+            String name = root.getFileName() != null ? root.getFileName().toString() : root.toString();
+            if (attrs.isDirectory()) {
+                Object key = folderKey(root, attrs);
+                if (key != null && !seen.add(key)) continue;
+                DirRules above = respectIgnoreFiles ? ancestorRules(root) : null;
+                pool.invoke(new Walk(root, name, above, true, out, progress, seen));
+            } else if (attrs.isRegularFile() && !FileRules.shouldIgnoreFile(FileRules.extensionOf(name), attrs.size())) {
+                out.add(new PathBundleFile(root, attrs, charset), name, true, false);
+            }
+        }
+    }
+
+    /**
+     * Rules of one folder, chained to the nearest enclosing folder that has rules of its own.
+     * A path is matched relative to the folder: {@code base} + the bundle path from {@code cut} on.
+     */
+    private static final class DirRules {
+        final IgnoreRuleSet rules;
+        final String base;
+        final int cut;
+        final @Nullable DirRules next;
+
+        DirRules(IgnoreRuleSet rules, String base, int cut, @Nullable DirRules next) {
+            this.rules = rules;
+            this.base = base;
+            this.cut = cut;
+            this.next = next;
+        }
+    }
+
+    /** Lists one folder, reports its files and forks a walk per subfolder that is not ignored. */
+    private final class Walk extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path dir;
+        private final String path;
+        private final @Nullable DirRules above;
+        private final boolean root;
+        private final Collector out;
+        private final BundleProgress progress;
+        private final Set<Object> seen;
+
+        Walk(Path dir, String path, @Nullable DirRules above, boolean root, Collector out, BundleProgress progress,
+             Set<Object> seen) {
+            this.dir = dir;
+            this.path = path;
+            this.above = above;
+            this.root = root;
+            this.out = out;
+            this.progress = progress;
+            this.seen = seen;
+        }
+
+        @Override
+        protected void compute() {
+            progress.checkCanceled();
+            List<Path> entries = new ArrayList<>();
+            List<BasicFileAttributes> entryAttrs = new ArrayList<>();
+            boolean vcsRoot = false;
+            boolean hasRuleFiles = false;
+            try {
+                Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<>() {
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        entries.add(file);
+                        entryAttrs.add(attrs);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        // Unreadable entries are left out, like unreadable files
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                return;
+            }
+            // Ignore files are only opened when the listing shows them, so clean folders cost no extra I/O
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.equals(".git")) vcsRoot = true;
+                else if (RULE_FILE_NAMES.contains(name)) hasRuleFiles = true;
+            }
+
+            DirRules rules = respectIgnoreFiles && !vcsRoot ? above : null;
+            IgnoreRuleSet own = respectIgnoreFiles && (vcsRoot || hasRuleFiles) ? readRules(dir, vcsRoot) : IgnoreRuleSet.EMPTY;
+            if (root) own = own.concat(extraRules);
+            if (!own.isEmpty()) rules = new DirRules(own, "", path.length() + 1, rules);
+
+            List<Walk> subfolders = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                Path entry = entries.get(i);
+                BasicFileAttributes attrs = entryAttrs.get(i);
+                String name = entry.getFileName().toString();
+                String entryPath = path + "/" + name;
+                if (attrs.isDirectory()) {
+                    if (FileRules.isIgnoredDirName(name) || isIgnored(rules, entryPath, true)) continue;
+                    Object key = folderKey(entry, attrs);
+                    if (key != null && seen.add(key)) {
+                        subfolders.add(new Walk(entry, entryPath, rules, false, out, progress, seen));
+                    }
+                } else if (attrs.isRegularFile()) {
+                    if (FileRules.shouldIgnoreFile(FileRules.extensionOf(name), attrs.size())) continue;
+                    if (isIgnored(rules, entryPath, false)) continue;
+                    out.add(new PathBundleFile(entry, attrs, charset), entryPath, false, false);
+                }
+            }
+            invokeAll(subfolders);
+        }
+    }
+
+    private static boolean isIgnored(@Nullable DirRules rules, String path, boolean isDirectory) {
+        for (DirRules r = rules; r != null; r = r.next) {
+            IgnoreRuleSet.Verdict verdict = r.rules.match(r.base + path.substring(r.cut), isDirectory);
+            if (verdict != IgnoreRuleSet.Verdict.NONE) return verdict == IgnoreRuleSet.Verdict.IGNORED;
+        }
+        return false;
+    }
+
+    /**
+     * Identity of a folder for loop detection: the file key where the file system has one (inode),
+     * else the real path of links and the path itself otherwise. Null if a link cannot be resolved.
+     */
+    private static @Nullable Object folderKey(Path dir, BasicFileAttributes attrs) {
+        if (attrs.fileKey() != null) return attrs.fileKey();
+        if (!Files.isSymbolicLink(dir)) return dir;
+        try {
+            return dir.toRealPath();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** Rules of the folders above {@code root}, up to its repository root; they apply to bundle paths as a whole. */
+    private static @Nullable DirRules ancestorRules(Path root) {
+        if (isVcsRoot(root)) return null;
+        List<Path> ancestors = new ArrayList<>();
+        for (Path dir = root.getParent(); dir != null; dir = dir.getParent()) {
+            ancestors.add(dir);
+            if (isVcsRoot(dir)) break;
+        }
+        Collections.reverse(ancestors);
+
+        DirRules chain = null;
+        Path parent = root.getParent();
+        for (Path dir : ancestors) {
+            IgnoreRuleSet own = readRules(dir, isVcsRoot(dir));
+            if (own.isEmpty()) continue;
+            String base = dir.relativize(parent).toString().replace('\\', '/');
+            chain = new DirRules(own, base.isEmpty() ? "" : base + "/", 0, chain);
+        }
+        return chain;
+    }
+
+    private static boolean isVcsRoot(Path dir) {
+        // ".git" is a directory in a regular clone and a file in worktrees/submodules
+        return Files.exists(dir.resolve(".git"), LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static IgnoreRuleSet readRules(Path dir, boolean vcsRoot) {
+        IgnoreRuleSet rules = IgnoreRuleSet.EMPTY;
+        if (vcsRoot) {
+            // Repository-local excludes rank below every .gitignore
+            rules = rules.concat(parse(dir.resolve(".git").resolve("info").resolve("exclude")));
+        }
+        for (String name : IgnoreRuleSet.FILE_NAMES) {
+            rules = rules.concat(parse(dir.resolve(name)));
+        }
+        return rules;
+    }
+
+    private static IgnoreRuleSet parse(Path ignoreFile) {
+        if (!Files.isRegularFile(ignoreFile)) return IgnoreRuleSet.EMPTY;
+        try {
+            return IgnoreRuleSet.parse(new String(Files.readAllBytes(ignoreFile), StandardCharsets.UTF_8), IGNORE_CASE);
+        } catch (IOException e) {
+            return IgnoreRuleSet.EMPTY;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Decodes file bytes into a right-sized char buffer, reusing the {@link CharsetDecoder}
+ * for consecutive files with the same charset. Not thread-safe, keep one per thread.
+ * Malformed input is replaced, matching {@code new String(bytes, charset)}.
+ */
+final class TextDecoder {
+
+    private static final ThreadLocal<TextDecoder> PER_THREAD = ThreadLocal.withInitial(TextDecoder::new);
+
+    private Charset charset;
+    private CharsetDecoder decoder;
+
+    static @NotNull TextDecoder forCurrentThread() {
+        return PER_THREAD.get();
+    }
+
+    /** Returns a fresh buffer owned by the caller, positioned at 0 with the decoded text as its content. */
+    @NotNull CharBuffer decode(byte @NotNull [] bytes, @NotNull Charset cs) {
+        if (!cs.equals(charset)) {
+            charset = cs;
+            decoder = cs.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        int needed = (int) Math.ceil(bytes.length * (double) decoder.maxCharsPerByte()) + 1;
+        CharBuffer chars = CharBuffer.allocate(needed);
+
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        decoder.reset();
+        CoderResult r = decoder.decode(in, chars, true);
+        if (!r.isUnderflow()) throw new IllegalStateException("Decode buffer too small: " + r);
+        decoder.flush(chars);
+        chars.flip();
+        return chars;
+    }
+}
@@ -0,0 +1,27 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Estimates how many tokens a language model will see for a piece of text.
+ * Implementations must be stateless and thread-safe; they run on the loader threads.
+ */
+public interface TokenEstimator {
+
+    /** Single-pass approximation of common BPE vocabularies; no allocation. */
+    TokenEstimator DEFAULT = new ApproximateTokenEstimator();
+
+    // Rough chars per token for source code, used before content has been read
+    double CHARS_PER_TOKEN = 3.5;
+
+    /** Tokens of {@code chars} characters of source code, before the text is known. */
+    static long fromLength(long chars) {
+        return (long) Math.ceil(chars / CHARS_PER_TOKEN);
+    }
+
+    int estimate(@NotNull CharSequence text, int start, int end);
+
+    default int estimate(@NotNull CharSequence text) {
+        return estimate(text, 0, text.length());
+    }
+}
@@ -0,0 +1,220 @@
+package com.github.archsx.snippetbundle.ignore;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One compiled line of a .gitignore-style file.
+ * <p>
+ * Supports the gitignore glob syntax: {@code *}, {@code ?}, {@code [...]} (with POSIX classes such as
+ * {@code [:alpha:]}), {@code **}, leading {@code !} (negation), trailing {@code /} (directories only), and anchoring
+ * (a pattern containing a non-trailing {@code /} is relative to the directory of the ignore file; otherwise it
+ * matches a name at any depth below it). Invalid patterns are skipped, as git does.
+ */
+public final class IgnorePattern {
+
+    private static final Map<String, String> POSIX_CLASSES = new HashMap<>();
+
+    static {
+        for (String name : new String[]{"alnum", "alpha", "blank", "cntrl", "digit", "graph",
+                "lower", "print", "punct", "space", "upper"}) {
+            POSIX_CLASSES.put(name, "\\p{" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "}");
+        }
+        POSIX_CLASSES.put("xdigit", "\\p{XDigit}");
+    }
+
+    private final String source;
+    private final Pattern regex;
+    private final boolean negated;
+    private final boolean directoryOnly;
+
+    private IgnorePattern(String source, Pattern regex, boolean negated, boolean directoryOnly) {
+        this.source = source;
+        this.regex = regex;
+        this.negated = negated;
+        this.directoryOnly = directoryOnly;
+    }
+
+    /**
+     * Compiles one line; returns null for blank lines, comments, lines that cannot match anything and invalid
+     * patterns (a reversed range like {@code [z-a]}, an unknown POSIX class).
+     */
+    public static @Nullable IgnorePattern compile(@NotNull String line, boolean ignoreCase) {
+        String p = trimTrailingSpaces(line);
+        if (p.isEmpty() || p.charAt(0) == '#') return null;
+
+        boolean negated = false;
+        if (p.charAt(0) == '!') {
+            negated = true;
+            p = p.substring(1);
+        } else if (p.startsWith("\\!") || p.startsWith("\\#")) {
+            p = p.substring(1);
+        }
+
+        boolean directoryOnly = false;
+        if (p.endsWith("/")) {
+            directoryOnly = true;
+            p = p.substring(0, p.length() - 1);
+        }
+        if (p.isEmpty()) return null;
+
+        // A slash anywhere but at the end anchors the pattern to the ignore file's directory
+        boolean anchored = p.indexOf('/') >= 0;
+        if (p.startsWith("/")) p = p.substring(1);
+        if (p.isEmpty()) return null;
+
+        StringBuilder re = new StringBuilder(p.length() * 2);
+        if (!anchored) re.append("(?:.*/)?");
+        if (!globToRegex(p, re)) return null;
+
+        int flags = ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0;
+        try {
+            return new IgnorePattern(line, Pattern.compile(re.toString(), flags), negated, directoryOnly);
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether this rule applies to {@code relativePath} ('/'-separated, relative to the ignore file's directory).
+     * Says nothing about the outcome; see {@link #isNegated()}.
+     */
+    public boolean matches(@NotNull CharSequence relativePath, boolean isDirectory) {
+        if (directoryOnly && !isDirectory) return false;
+        return regex.matcher(relativePath).matches();
+    }
+
+    /** {@code !pattern}: a match re-includes the path. */
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public boolean isDirectoryOnly() {
+        return directoryOnly;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /** False if the glob is invalid. */
+    private static boolean globToRegex(String glob, StringBuilder re) {
+        int n = glob.length();
+        int i = 0;
+        while (i < n) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                boolean doubleStar = i + 1 < n && glob.charAt(i + 1) == '*';
+                boolean atSegmentStart = i == 0 || glob.charAt(i - 1) == '/';
+                if (doubleStar && atSegmentStart) {
+                    int end = i + 2;
+                    if (end == n) {
+                        // "foo/**" -> everything inside foo
+                        re.append(".*");
+                        i = end;
+                        continue;
+                    }
+                    if (glob.charAt(end) == '/') {
+                        // "**/" -> zero or more directories
+                        re.append("(?:.*/)?");
+                        i = end + 1;
+                        continue;
+                    }
+                }
+                // Any other star (including a non-segment "**") stays within one path segment
+                re.append("[^/]*");
+                while (i < n && glob.charAt(i) == '*') i++;
+                continue;
+            }
+            if (c == '?') {
+                re.append("[^/]");
+            } else if (c == '[') {
+                int close = classEnd(glob, i);
+                if (close < 0) {
+                    re.append("\\[");
+                } else {
+                    if (!appendClass(glob, i + 1, close, re)) return false;
+                    i = close + 1;
+                    continue;
+                }
+            } else if (c == '\\' && i + 1 < n) {
+                quote(glob.charAt(++i), re);
+            } else {
+                quote(c, re);
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /** Index of the ']' closing the class opened at {@code open}, or -1 if it is unterminated. */
+    private static int classEnd(String glob, int open) {
+        int i = open + 1;
+        if (i < glob.length() && (glob.charAt(i) == '!' || glob.charAt(i) == '^')) i++;
+        if (i < glob.length() && glob.charAt(i) == ']') i++; // a leading ']' is literal
+        for (; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            int posixEnd = posixClassEnd(glob, i);
+            if (posixEnd >= 0) i = posixEnd;
+            else if (c == '\\') i++;
+            else if (c == ']') return i;
+        }
+        return -1;
+    }
+
+    /** Index of the ']' ending a {@code [:name:]} starting at {@code i}, or -1 if there is none. */
+    private static int posixClassEnd(String glob, int i) {
+        if (glob.charAt(i) != '[' || i + 1 >= glob.length() || glob.charAt(i + 1) != ':') return -1;
+        int end = glob.indexOf(":]", i + 2);
+        return end < 0 ? -1 : end + 1;
+    }
+
+    /** False if the class names an unknown POSIX class. */
+    private static boolean appendClass(String glob, int from, int to, StringBuilder re) {
+        re.append('[');
+        int i = from;
+        if (glob.charAt(i) == '!' || glob.charAt(i) == '^') {
+            re.append('^');
+            i++;
+        }
+        for (; i < to; i++) {
+            char c = glob.charAt(i);
+            int posixEnd = posixClassEnd(glob, i);
+            if (posixEnd >= 0 && posixEnd < to) {
+                String posix = POSIX_CLASSES.get(glob.substring(i + 2, posixEnd - 1));
+                if (posix == null) return false;
+                re.append(posix);
+                i = posixEnd;
+            } else if (c == '\\' && i + 1 < to) {
+                re.append('\\').append(glob.charAt(++i));
+            } else if (c == '[' || c == '&' || c == '\\' || (c == '^' && i > from)) {
+                re.append('\\').append(c);
+            } else {
+                re.append(c);
+            }
+        }
+        re.append(']');
+        return true;
+    }
+
+    private static void quote(char c, StringBuilder re) {
+        if ("\\.[]{}()<>*+-=!?^$|".indexOf(c) >= 0) re.append('\\');
+        re.append(c);
+    }
+
+    /** Trailing spaces are ignored unless escaped with a backslash. */
+    private static String trimTrailingSpaces(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == ' ' || line.charAt(end - 1) == '\t' || line.charAt(end - 1) == '\r')) {
+            if (end > 1 && line.charAt(end - 2) == '\\') break;
+            end--;
+        }
+        return line.substring(0, end);
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.archsx.snippetbundle.ignore;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The compiled rules of one ignore file (or of several files in the same directory, in precedence order).
+ * Pure string matching, no VFS access; paths are '/'-separated and relative to the directory holding the rules.
+ */
+public final class IgnoreRuleSet {
+
+    public enum Verdict {
+        /** The last matching rule excludes the path. */
+        IGNORED,
+        /** The last matching rule is a negation ({@code !pattern}) that re-includes the path. */
+        INCLUDED,
+        /** No rule matched; the decision falls to the enclosing directories. */
+        NONE
+    }
+
+    /** Ignore files read in every directory, in precedence order: later names override earlier ones. */
+    public static final List<String> FILE_NAMES =
+            Collections.unmodifiableList(Arrays.asList(".gitignore", ".ignore", ".snippetbundleignore"));
+
+    public static final IgnoreRuleSet EMPTY = new IgnoreRuleSet(Collections.emptyList());
+
+    private final List<IgnorePattern> patterns;
+
+    private IgnoreRuleSet(List<IgnorePattern> patterns) {
+        this.patterns = patterns;
+    }
+
+    /** Parses ignore-file text; later lines take precedence over earlier ones, as in git. */
+    public static @NotNull IgnoreRuleSet parse(@NotNull CharSequence text, boolean ignoreCase) {
+        List<IgnorePattern> out = new ArrayList<>();
+        int start = 0;
+        int n = text.length();
+        for (int i = 0; i <= n; i++) {
+            if (i == n || text.charAt(i) == '\n') {
+                IgnorePattern p = IgnorePattern.compile(text.subSequence(start, i).toString(), ignoreCase);
+                if (p != null) out.add(p);
+                start = i + 1;
+            }
+        }
+        return out.isEmpty() ? EMPTY : new IgnoreRuleSet(Collections.unmodifiableList(out));
+    }
+
+    /** Rules of {@code this} followed by {@code later}; the later set wins on conflicts. */
+    public @NotNull IgnoreRuleSet concat(@NotNull IgnoreRuleSet later) {
+        if (later.isEmpty()) return this;
+        if (isEmpty()) return later;
+        List<IgnorePattern> merged = new ArrayList<>(patterns.size() + later.patterns.size());
+        merged.addAll(patterns);
+        merged.addAll(later.patterns);
+        return new IgnoreRuleSet(Collections.unmodifiableList(merged));
+    }
+
+    public boolean isEmpty() {
+        return patterns.isEmpty();
+    }
+
+    public @NotNull Verdict match(@NotNull CharSequence relativePath, boolean isDirectory) {
+        // Last match wins, so scan backwards and stop at the first hit
+        for (int i = patterns.size() - 1; i >= 0; i--) {
+            IgnorePattern p = patterns.get(i);
+            if (p.matches(relativePath, isDirectory)) {
+                return p.isNegated() ? Verdict.INCLUDED : Verdict.IGNORED;
+            }
+        }
+        return Verdict.NONE;
+    }
+
+    public @NotNull List<IgnorePattern> getPatterns() {
+        return patterns;
+    }
+}
@@ -1,49 +1,58 @@
 package com.github.archsx.snippetbundle.model;
 
-import com.github.archsx.snippetbundle.util.IgnoreRules;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a node in the file tree.
  * Can be either a file (leaf) or a directory (with children).
+ * <p>
+ * Directory children are loaded lazily: on first expand or on first traversal
+ * (e.g. by the copier), never in the constructor.
+ * <p>
+ * Selections can reach hundreds of thousands of nodes, so a node stays small and only carries what its kind needs:
+ * a leaf keeps its totals in an int, a folder its child list and a {@link NodeStats}, and only a root folder holds
+ * the {@link NodeFilter} of its subtree. Flags are packed into a byte and child lists are exact-size immutable
+ * arrays. Names are not copied; they come from the VFS name cache on demand.
  */
-public class FileTreeNode {
+public abstract class FileTreeNode {
 
-    private final VirtualFile file;
-    private final FileTreeNode parent;
-    private final List<FileTreeNode> children;
-    private boolean expanded;
+    // Bumped by every change to cached stats; a computation racing with one does not cache its result
+    private static final AtomicLong STATS_EPOCH = new AtomicLong();
 
-    public FileTreeNode(VirtualFile file) {
-        this(file, null);
-    }
+    private static final byte EXPANDED = 1;
+    // Set on the node the user switched to outline mode; descendants inherit it
+    private static final byte OUTLINE = 1 << 1;
+
+    private final VirtualFile file;
+    private final Dir parent;
+    private volatile byte flags;
 
-    public FileTreeNode(VirtualFile file, FileTreeNode parent) {
+    private FileTreeNode(VirtualFile file, Dir parent) {
         this.file = file;
         this.parent = parent;
-        this.children = new ArrayList<>();
-        this.expanded = false;
+    }
 
-        // If directory, load children
-        if (file.isDirectory()) {
-            loadChildren();
-        }
+    /** Root node with the default ignore rules. */
+    public static @NotNull FileTreeNode root(@NotNull VirtualFile file) {
+        return root(file, NodeFilter.DEFAULT);
     }
 
-    private void loadChildren() {
-        VirtualFile[] childFiles = file.getChildren();
-        if (childFiles != null) {
-            for (VirtualFile child : childFiles) {
-                // Default ignore rules: .git/node_modules/build/... + large files/binary files
-                if (IgnoreRules.shouldIgnore(child)) {
-                    continue;
-                }
-                children.add(new FileTreeNode(child, this));
-            }
-        }
+    /** Root node; for a folder, its subtree is pruned with {@code filter}. */
+    public static @NotNull FileTreeNode root(@NotNull VirtualFile file, @NotNull NodeFilter filter) {
+        return file.isDirectory() ? new Root(file, filter) : new Leaf(file, null);
+    }
+
+    /** Node for {@code file} below the folder node {@code parent}. */
+    public static @NotNull FileTreeNode child(@NotNull VirtualFile file, @NotNull FileTreeNode parent) {
+        return file.isDirectory() ? new Dir(file, (Dir) parent) : new Leaf(file, (Dir) parent);
     }
 
     public VirtualFile getFile() {
@@ -54,24 +63,65 @@ public class FileTreeNode {
         return parent;
     }
 
-    public List<FileTreeNode> getChildren() {
-        return children;
+    /** Filter of the subtree this node belongs to, held by its root. */
+    public NodeFilter getFilter() {
+        FileTreeNode n = this;
+        while (n.parent != null) n = n.parent;
+        return n instanceof Root ? ((Root) n).filter : NodeFilter.DEFAULT;
     }
 
+    /**
+     * Returns the children, loading them from the VFS on first access.
+     * The list is an immutable snapshot: once loaded, reads take no lock and are safe from any thread.
+     * Callers off the EDT should hold a read action for the first (loading) access.
+     */
+    public abstract List<FileTreeNode> getChildren();
+
+    /** Whether children have been materialized; lets walkers avoid forcing a load. */
+    public abstract boolean isChildrenLoaded();
+
+    /** Appends {@code child} to the loaded children; returns its index, or -1 if children are not loaded. */
+    public abstract int addLoadedChild(FileTreeNode child);
+
+    /** Removes {@code child} from the loaded children; returns its former index, or -1 if absent. */
+    public abstract int removeLoadedChild(FileTreeNode child);
+
     public boolean isDirectory() {
-        return file.isDirectory();
+        return this instanceof Dir;
     }
 
     public boolean isExpanded() {
-        return expanded;
+        return (flags & EXPANDED) != 0;
     }
 
     public void setExpanded(boolean expanded) {
-        this.expanded = expanded;
+        if (expanded) getChildren();
+        setFlag(EXPANDED, expanded);
     }
 
     public void toggleExpanded() {
-        this.expanded = !this.expanded;
+        setExpanded(!isExpanded());
+    }
+
+    /** Whether outline mode was switched on for this node itself. */
+    public boolean isOutline() {
+        return (flags & OUTLINE) != 0;
+    }
+
+    public void setOutline(boolean outline) {
+        setFlag(OUTLINE, outline);
+    }
+
+    /** Whether this node or one of its ancestors is in outline mode. */
+    public boolean isInOutlineMode() {
+        for (FileTreeNode n = this; n != null; n = n.parent) {
+            if ((n.flags & OUTLINE) != 0) return true;
+        }
+        return false;
+    }
+
+    private synchronized void setFlag(byte flag, boolean on) {
+        flags = (byte) (on ? flags | flag : flags & ~flag);
     }
 
     /**
@@ -81,32 +131,83 @@ public class FileTreeNode {
         if (parent == null) {
             return file.getName();
         }
-        return parent.getDisplayPath() + "/" + file.getName();
+        // Names from the root down, joined in one exact-size buffer
+        int depth = 0;
+        for (FileTreeNode n = this; n != null; n = n.parent) depth++;
+        String[] names = new String[depth];
+        int length = depth - 1;
+        FileTreeNode n = this;
+        for (int i = depth - 1; i >= 0; i--, n = n.parent) {
+            names[i] = n.file.getName();
+            length += names[i].length();
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < depth; i++) {
+            if (i > 0) sb.append('/');
+            sb.append(names[i]);
+        }
+        return sb.toString();
     }
 
     /**
-     * Counts total files in this node (recursively)
+     * Totals of this subtree. Computed once, from the children's totals where they are loaded and by walking the VFS
+     * below folders that are not; afterwards kept up to date by deltas, so repeated calls are O(1).
+     * The first call may be slow, call it off the EDT.
      */
+    public abstract @NotNull NodeStats getStats();
+
+    /** Totals if already known, or null; never walks a directory. A file's totals are a stat call away. */
+    public abstract NodeStats getCachedStats();
+
+    /** Totals if already known, or null; never computes anything. */
+    abstract NodeStats peekStats();
+
+    /** Counts total files in this node (recursively); see {@link #getStats()}. */
     public int getFileCount() {
-        if (!isDirectory()) {
-            return 1;
+        return getStats().fileCount;
+    }
+
+    /** Cached file count, or -1 if it has not been computed yet. */
+    public int getCachedFileCount() {
+        NodeStats cached = getCachedStats();
+        return cached == null ? -1 : cached.fileCount;
+    }
+
+    /** Re-reads a file's size and type after its content changed, and passes the difference up. */
+    public void refreshStats() {
+    }
+
+    /** Drops the cached totals of this node and all of its ancestors. */
+    public void invalidateStats() {
+        synchronized (STATS_EPOCH) {
+            STATS_EPOCH.incrementAndGet();
+            clearStats();
+            for (Dir n = parent; n != null; n = (Dir) n.getParent()) {
+                n.stats = null;
+            }
         }
-        int count = 0;
-        for (FileTreeNode child : children) {
-            count += child.getFileCount();
+    }
+
+    abstract void clearStats();
+
+    /** Direct child for {@code childFile} among the loaded children, or null. Never triggers a load. */
+    public FileTreeNode findLoadedChild(VirtualFile childFile) {
+        if (!isChildrenLoaded()) return null;
+        for (FileTreeNode child : getChildren()) {
+            if (child.getFile().equals(childFile)) return child;
         }
-        return count;
+        return null;
     }
 
     /**
-     * Finds a node by file and removes it
+     * Finds a node by file and removes it.
+     * Only searches subtrees that have already been loaded.
      */
     public boolean removeChild(VirtualFile fileToRemove) {
-        for (int i = 0; i < children.size(); i++) {
-            FileTreeNode child = children.get(i);
+        if (!isChildrenLoaded()) return false;
+        for (FileTreeNode child : getChildren()) {
             if (child.getFile().equals(fileToRemove)) {
-                children.remove(i);
-                return true;
+                return removeLoadedChild(child) >= 0;
             }
             if (child.isDirectory() && child.removeChild(fileToRemove)) {
                 return true;
@@ -114,4 +215,235 @@ public class FileTreeNode {
         }
         return false;
     }
+
+    /** A file. Its totals are encoded in one int: the byte count when it is text, or one of the SIZE_* markers. */
+    private static final class Leaf extends FileTreeNode {
+        private static final int SIZE_UNKNOWN = -2;
+        private static final int SIZE_BINARY = -1;
+
+        private volatile int size = SIZE_UNKNOWN;
+
+        Leaf(VirtualFile file, Dir parent) {
+            super(file, parent);
+        }
+
+        @Override
+        public List<FileTreeNode> getChildren() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isChildrenLoaded() {
+            return true;
+        }
+
+        @Override
+        public int addLoadedChild(FileTreeNode child) {
+            return -1;
+        }
+
+        @Override
+        public int removeLoadedChild(FileTreeNode child) {
+            return -1;
+        }
+
+        @Override
+        public @NotNull NodeStats getStats() {
+            int s = size;
+            if (s == SIZE_UNKNOWN) size = s = encode(NodeStats.ofFile(getFile()));
+            return decode(s);
+        }
+
+        @Override
+        public NodeStats getCachedStats() {
+            return getStats();
+        }
+
+        @Override
+        NodeStats peekStats() {
+            int s = size;
+            return s == SIZE_UNKNOWN ? null : decode(s);
+        }
+
+        @Override
+        public void refreshStats() {
+            synchronized (STATS_EPOCH) {
+                NodeStats old = peekStats();
+                int fresh = encode(NodeStats.ofFile(getFile()));
+                size = fresh;
+                Dir parent = (Dir) getParent();
+                if (parent == null) return;
+                if (old == null) parent.invalidateStats();
+                else parent.applyStatsDelta(decode(fresh).minus(old));
+            }
+        }
+
+        @Override
+        void clearStats() {
+            size = SIZE_UNKNOWN;
+        }
+
+        private static int encode(NodeStats s) {
+            return s.binaryCount > 0 ? SIZE_BINARY : (int) Math.min(Integer.MAX_VALUE, s.byteCount);
+        }
+
+        private static NodeStats decode(int size) {
+            if (size == SIZE_BINARY) return new NodeStats(0, 0, 0, 1);
+            return new NodeStats(1, size, NodeStats.estimateTokens(size), 0);
+        }
+    }
+
+    /** A folder below a root; inherits the root's filter. */
+    private static class Dir extends FileTreeNode {
+        // null until loaded; afterwards an immutable list that is replaced, never mutated (copy-on-write)
+        private volatile List<FileTreeNode> children;
+        // Subtree totals; null until computed. Kept current by deltas once known, see applyStatsDelta
+        private volatile NodeStats stats;
+
+        Dir(VirtualFile file, Dir parent) {
+            super(file, parent);
+        }
+
+        private List<FileTreeNode> loadChildren() {
+            VirtualFile[] childFiles = getFile().getChildren();
+            if (childFiles == null || childFiles.length == 0) return Collections.emptyList();
+            NodeFilter filter = getFilter();
+            FileTreeNode[] loaded = new FileTreeNode[childFiles.length];
+            int n = 0;
+            for (VirtualFile child : childFiles) {
+                if (!filter.accept(child)) {
+                    continue;
+                }
+                loaded[n++] = child(child, this);
+            }
+            return immutableList(loaded, n);
+        }
+
+        /** Exact-size immutable list over the first {@code n} entries; the shared empty list for none. */
+        private static List<FileTreeNode> immutableList(FileTreeNode[] nodes, int n) {
+            if (n == 0) return Collections.emptyList();
+            return List.of(n == nodes.length ? nodes : Arrays.copyOf(nodes, n));
+        }
+
+        @Override
+        public List<FileTreeNode> getChildren() {
+            List<FileTreeNode> loaded = children;
+            if (loaded != null) return loaded;
+            synchronized (this) {
+                if (children == null) children = loadChildren();
+                return children;
+            }
+        }
+
+        @Override
+        public boolean isChildrenLoaded() {
+            return children != null;
+        }
+
+        @Override
+        public synchronized int addLoadedChild(FileTreeNode child) {
+            if (children == null) return -1;
+            int size = children.size();
+            FileTreeNode[] copy = children.toArray(new FileTreeNode[size + 1]);
+            copy[size] = child;
+            children = immutableList(copy, size + 1);
+            NodeStats added = child.getCachedStats();
+            if (added != null) applyStatsDelta(added);
+            else invalidateStats();
+            return size;
+        }
+
+        @Override
+        public synchronized int removeLoadedChild(FileTreeNode child) {
+            if (children == null) return -1;
+            int index = children.indexOf(child);
+            if (index < 0) return -1;
+            int size = children.size();
+            FileTreeNode[] copy = new FileTreeNode[size - 1];
+            for (int i = 0, j = 0; i < size; i++) {
+                if (i != index) copy[j++] = children.get(i);
+            }
+            children = immutableList(copy, size - 1);
+            NodeStats removed = child.peekStats();
+            if (removed != null) applyStatsDelta(NodeStats.ZERO.minus(removed));
+            else invalidateStats();
+            return index;
+        }
+
+        @Override
+        public @NotNull NodeStats getStats() {
+            NodeStats cached = stats;
+            if (cached != null) return cached;
+
+            long epoch = STATS_EPOCH.get();
+            NodeStats computed;
+            if (isChildrenLoaded()) {
+                computed = NodeStats.ZERO;
+                for (FileTreeNode child : getChildren()) {
+                    computed = computed.plus(child.getStats());
+                }
+            } else {
+                computed = statsOnDisk(getFile(), getFilter());
+            }
+            synchronized (STATS_EPOCH) {
+                if (STATS_EPOCH.get() == epoch) stats = computed;
+            }
+            return computed;
+        }
+
+        @Override
+        public NodeStats getCachedStats() {
+            return stats;
+        }
+
+        @Override
+        NodeStats peekStats() {
+            return stats;
+        }
+
+        @Override
+        void clearStats() {
+            stats = null;
+        }
+
+        /**
+         * Adds {@code delta} to this node and every ancestor with known totals. An ancestor's totals are only known
+         * if this node's were when it summed them up, so the walk can stop at the first unknown one.
+         */
+        private void applyStatsDelta(NodeStats delta) {
+            synchronized (STATS_EPOCH) {
+                STATS_EPOCH.incrementAndGet();
+                for (Dir n = this; n != null; n = (Dir) n.getParent()) {
+                    NodeStats s = n.stats;
+                    if (s == null) break;
+                    n.stats = s.plus(delta);
+                }
+            }
+        }
+
+        private static NodeStats statsOnDisk(@NotNull VirtualFile dir, @NotNull NodeFilter filter) {
+            NodeStats[] total = {NodeStats.ZERO};
+            VfsUtilCore.visitChildrenRecursively(dir,
+                    new VirtualFileVisitor<Void>(VirtualFileVisitor.NO_FOLLOW_SYMLINKS) {
+                        @Override
+                        public boolean visitFile(@NotNull VirtualFile f) {
+                            if (f.equals(dir)) return true;
+                            if (!filter.accept(f)) return false;
+                            if (!f.isDirectory()) total[0] = total[0].plus(NodeStats.ofFile(f));
+                            return true;
+                        }
+                    });
+            return total[0];
+        }
+    }
+
+    /** A root folder; the only node that holds the filter for its subtree. */
+    private static final class Root extends Dir {
+        private final NodeFilter filter;
+
+        Root(VirtualFile file, NodeFilter filter) {
+            super(file, null);
+            this.filter = filter;
+        }
+    }
 }
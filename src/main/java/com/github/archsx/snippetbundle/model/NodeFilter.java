@@ -0,0 +1,18 @@
+package com.github.archsx.snippetbundle.model;
+
+import com.github.archsx.snippetbundle.util.IgnoreRules;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Decides which children a directory node materializes. Set on a root node and inherited by its subtree,
+ * so excluded paths are pruned while walking instead of filtered afterwards.
+ */
+@FunctionalInterface
+public interface NodeFilter {
+
+    /** Default ignore rules only: .git/node_modules/build/... + large files/binary files. */
+    NodeFilter DEFAULT = file -> !IgnoreRules.shouldIgnore(file);
+
+    boolean accept(@NotNull VirtualFile file);
+}
@@ -0,0 +1,61 @@
+package com.github.archsx.snippetbundle.model;
+
+import com.github.archsx.snippetbundle.engine.TokenEstimator;
+import com.github.archsx.snippetbundle.util.IgnoreRules;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.fileTypes.UnknownFileType;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Totals of a subtree as the bundle would see it, estimated from the VFS without reading content:
+ * text files with their bytes and tokens, and binary files that will be skipped. Immutable.
+ */
+public final class NodeStats {
+
+    public static final NodeStats ZERO = new NodeStats(0, 0, 0, 0);
+
+    /** Text files; binary files are counted in {@link #binaryCount} only. */
+    public final int fileCount;
+    public final long byteCount;
+    public final long tokenEstimate;
+    public final int binaryCount;
+
+    public NodeStats(int fileCount, long byteCount, long tokenEstimate, int binaryCount) {
+        this.fileCount = fileCount;
+        this.byteCount = byteCount;
+        this.tokenEstimate = tokenEstimate;
+        this.binaryCount = binaryCount;
+    }
+
+    public static @NotNull NodeStats ofFile(@NotNull VirtualFile file) {
+        if (isBinary(file)) return new NodeStats(0, 0, 0, 1);
+        long bytes = file.getLength();
+        return new NodeStats(1, bytes, estimateTokens(bytes), 0);
+    }
+
+    /**
+     * Binary by file type (images, archives, class files, ...), which the IDE resolves from the name alone.
+     * Unknown types are counted as text; the copier's content sniff has the final word.
+     */
+    private static boolean isBinary(VirtualFile file) {
+        if (IgnoreRules.hasBinaryExtension(file)) return true;
+        FileType type = file.getFileType();
+        return type.isBinary() && type != UnknownFileType.INSTANCE;
+    }
+
+    /** Tokens of {@code chars} characters of source code, before the text is known. */
+    public static long estimateTokens(long chars) {
+        return TokenEstimator.fromLength(chars);
+    }
+
+    public @NotNull NodeStats plus(@NotNull NodeStats other) {
+        return new NodeStats(fileCount + other.fileCount, byteCount + other.byteCount,
+                tokenEstimate + other.tokenEstimate, binaryCount + other.binaryCount);
+    }
+
+    public @NotNull NodeStats minus(@NotNull NodeStats other) {
+        return new NodeStats(fileCount - other.fileCount, byteCount - other.byteCount,
+                tokenEstimate - other.tokenEstimate, binaryCount - other.binaryCount);
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.archsx.snippetbundle.service;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Destination of a rendered bundle. The copier streams Markdown into {@link #writer()};
+ * {@link #publish()} is called only if rendering completed, {@link #close()} is always called.
+ */
+public interface BundleSink extends Closeable {
+
+    @NotNull Writer writer() throws IOException;
+
+    /** Makes the finished bundle visible (clipboard contents, flushed file, ...). Called on the EDT. */
+    void publish() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+        writer().close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.intellij.openapi.ide.CopyPasteManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.Transferable;
+import java.awt.datatransfer.UnsupportedFlavorException;
+import java.io.Writer;
+
+/**
+ * Collects the bundle in a single growing buffer and hands it to the clipboard as a
+ * {@link Transferable} that only turns it into a {@code String} when the text is first requested.
+ */
+public final class ClipboardSink implements BundleSink {
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final Writer writer = new Writer() {
+        @Override
+        public void write(char @NotNull [] cbuf, int off, int len) {
+            buffer.append(cbuf, off, len);
+        }
+
+        @Override
+        public void write(@NotNull String str, int off, int len) {
+            buffer.append(str, off, off + len);
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    @Override
+    public @NotNull Writer writer() {
+        return writer;
+    }
+
+    @Override
+    public void publish() {
+        CopyPasteManager.getInstance().setContents(new LazyTextTransferable(buffer));
+    }
+
+    private static final class LazyTextTransferable implements Transferable {
+        private CharSequence source;
+        private String text;
+
+        LazyTextTransferable(CharSequence source) {
+            this.source = source;
+        }
+
+        private synchronized String text() {
+            if (text == null) {
+                text = source.toString();
+                source = null; // let the builder go as soon as the String exists
+            }
+            return text;
+        }
+
+        @Override
+        public DataFlavor[] getTransferDataFlavors() {
+            return new DataFlavor[]{DataFlavor.stringFlavor};
+        }
+
+        @Override
+        public boolean isDataFlavorSupported(DataFlavor flavor) {
+            return DataFlavor.stringFlavor.equals(flavor);
+        }
+
+        @Override
+        public @NotNull Object getTransferData(DataFlavor flavor) throws UnsupportedFlavorException {
+            if (!isDataFlavorSupported(flavor)) throw new UnsupportedFlavorException(flavor);
+            return text();
+        }
+    }
+}
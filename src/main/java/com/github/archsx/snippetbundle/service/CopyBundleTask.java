@@ -0,0 +1,105 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BundleOptions;
+import com.github.archsx.snippetbundle.engine.BundleResult;
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.github.archsx.snippetbundle.settings.BundleTarget;
+import com.github.archsx.snippetbundle.settings.SnippetBundleSettings;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.Task;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams the Markdown bundle into a {@link BundleSink} on a background thread and publishes it
+ * only once the whole bundle has been rendered. Cancelling leaves the target (e.g. clipboard) untouched.
+ */
+public class CopyBundleTask extends Task.Backgroundable {
+
+    /** Callbacks are always invoked on the EDT. */
+    public interface Callback {
+        void onCopied(@NotNull BundleResult result);
+
+        void onCancelled();
+
+        void onFailed(@NotNull Throwable error);
+    }
+
+    private final List<FileTreeNode> rootNodes;
+    private final BundleSink sink;
+    private final BundleOptions options;
+    private final RenderedBlockCache cache;
+    private final Callback callback;
+    private BundleResult result;
+
+    public CopyBundleTask(@NotNull Project project,
+                          @NotNull List<FileTreeNode> rootNodes,
+                          @NotNull Callback callback) {
+        this(project, "Bundling files as Markdown", rootNodes, new ClipboardSink(),
+                SnippetBundleSettings.getInstance().getBundleOptions(BundleTarget.CLIPBOARD), callback);
+    }
+
+    public CopyBundleTask(@NotNull Project project,
+                          @NotNull String title,
+                          @NotNull List<FileTreeNode> rootNodes,
+                          @NotNull BundleSink sink,
+                          @NotNull BundleOptions options,
+                          @NotNull Callback callback) {
+        super(project, title, true);
+        this.rootNodes = rootNodes;
+        this.sink = sink;
+        // Snapshot editor state here (EDT); the packer reads it on the background thread
+        Set<VfsBundleFile> openFiles = new HashSet<>();
+        for (VirtualFile file : FileEditorManager.getInstance(project).getOpenFiles()) openFiles.add(new VfsBundleFile(file));
+        this.options = options.withOpenFiles(openFiles).withOutline(new OutlineExtractor(project));
+        this.cache = RenderedBlockCache.getInstance(project);
+        this.callback = callback;
+    }
+
+    @Override
+    public void run(@NotNull ProgressIndicator indicator) {
+        try {
+            result = FileContentCopier.writeMarkdown(rootNodes, sink.writer(), options, cache, indicator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void onSuccess() {
+        try {
+            sink.publish();
+        } catch (IOException e) {
+            callback.onFailed(e);
+            return;
+        }
+        callback.onCopied(result);
+    }
+
+    @Override
+    public void onCancel() {
+        callback.onCancelled();
+    }
+
+    @Override
+    public void onThrowable(@NotNull Throwable error) {
+        callback.onFailed(error);
+    }
+
+    @Override
+    public void onFinished() {
+        try {
+            sink.close();
+        } catch (IOException ignored) {
+            // Nothing useful to report once the task is over
+        }
+    }
+}
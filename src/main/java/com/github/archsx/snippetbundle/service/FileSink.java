@@ -0,0 +1,43 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.FileOutput;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Collections;
+
+/**
+ * Writes the bundle to disk through a {@link FileOutput}: the target is only replaced on {@link #publish()},
+ * so a cancelled export leaves it untouched. The IDE is told about the new file right away.
+ */
+public final class FileSink implements BundleSink {
+
+    private final FileOutput output;
+
+    public FileSink(@NotNull Path target) throws IOException {
+        this.output = new FileOutput(target);
+    }
+
+    public @NotNull Path getTarget() {
+        return output.getTarget();
+    }
+
+    @Override
+    public @NotNull Writer writer() {
+        return output.writer();
+    }
+
+    @Override
+    public void publish() throws IOException {
+        output.commit();
+        LocalFileSystem.getInstance().refreshNioFiles(Collections.singletonList(output.getTarget()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
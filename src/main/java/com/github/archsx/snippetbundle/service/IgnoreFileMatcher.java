@@ -0,0 +1,198 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.ignore.IgnoreRuleSet;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "is this file excluded by an ignore file?" with git semantics: {@code .gitignore}, {@code .ignore} and
+ * {@code .snippetbundleignore} are read in every directory from the file up to the VCS root (plus
+ * {@code .git/info/exclude}); rules in deeper directories win, and within one directory the later file wins.
+ * Without a repository the walk stops where the project's content ends, so ignore files of unrelated folders
+ * above the project (a home directory, say) never apply.
+ * <p>
+ * Compiled rules are cached per directory, each entry linking to the nearest ancestor that has rules, so a lookup
+ * only touches directories that actually contain ignore files. Any change to an ignore file drops the cache.
+ * <p>
+ * Only decides about the file itself: callers walk top-down and prune ignored directories, as git does.
+ */
+@Service(Service.Level.PROJECT)
+public final class IgnoreFileMatcher implements Disposable {
+
+    private static final Set<String> WATCHED_NAMES = new HashSet<>(IgnoreRuleSet.FILE_NAMES);
+    private static final String EXCLUDE_DIR_SUFFIX = "/.git/info";
+    private static final String EXCLUDE_NAME = "exclude";
+    // A deep walk over a huge tree should not pin every directory it ever saw
+    private static final int MAX_CACHED_DIRS = 50_000;
+
+    static {
+        // A .git appearing or going away moves the VCS root
+        WATCHED_NAMES.add(".git");
+    }
+
+    /** Rules of one directory, chained to the nearest ancestor directory that has rules of its own. */
+    private static final class DirRules {
+        final VirtualFile dir;
+        final IgnoreRuleSet rules;
+        final DirRules next;
+
+        DirRules(VirtualFile dir, IgnoreRuleSet rules, DirRules next) {
+            this.dir = dir;
+            this.rules = rules;
+            this.next = next;
+        }
+    }
+
+    private static final DirRules NO_RULES = new DirRules(null, IgnoreRuleSet.EMPTY, null);
+
+    private final Project project;
+    private final Map<VirtualFile, DirRules> cache = new ConcurrentHashMap<>();
+
+    public IgnoreFileMatcher(@NotNull Project project) {
+        this.project = project;
+        ApplicationManager.getApplication().getMessageBus().connect(this)
+                .subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+                    @Override
+                    public void after(@NotNull List<? extends VFileEvent> events) {
+                        for (VFileEvent event : events) {
+                            if (affectsRules(event)) {
+                                cache.clear();
+                                return;
+                            }
+                        }
+                    }
+                });
+    }
+
+    public static @NotNull IgnoreFileMatcher getInstance(@NotNull Project project) {
+        return project.getService(IgnoreFileMatcher.class);
+    }
+
+    /** Whether the closest ignore rule matching {@code file} excludes it. Needs a read action. */
+    public boolean isIgnored(@NotNull VirtualFile file) {
+        VirtualFile parent = file.getParent();
+        if (parent == null) return false;
+        boolean isDirectory = file.isDirectory();
+        for (DirRules r = rulesFor(parent); r != null; r = r.next) {
+            if (r.rules.isEmpty()) continue;
+            String relative = VfsUtilCore.getRelativePath(file, r.dir, '/');
+            if (relative == null) continue;
+            IgnoreRuleSet.Verdict verdict = r.rules.match(relative, isDirectory);
+            if (verdict != IgnoreRuleSet.Verdict.NONE) return verdict == IgnoreRuleSet.Verdict.IGNORED;
+        }
+        return false;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /** Nearest rules at or above {@code dir}, or null if no directory up to the top of the walk has any. */
+    private @Nullable DirRules rulesFor(@NotNull VirtualFile dir) {
+        DirRules cached = cache.get(dir);
+        if (cached == null) {
+            VirtualFile up = dir.getParent();
+            boolean vcsRoot = isVcsRoot(dir);
+            DirRules above = vcsRoot || up == null || isTopOfProject(dir, up) ? null : rulesFor(up);
+            IgnoreRuleSet own = readRules(dir, vcsRoot);
+            cached = own.isEmpty() ? (above == null ? NO_RULES : above) : new DirRules(dir, own, above);
+            if (cache.size() >= MAX_CACHED_DIRS) cache.clear();
+            cache.put(dir, cached);
+        }
+        return cached == NO_RULES ? null : cached;
+    }
+
+    private static boolean isVcsRoot(VirtualFile dir) {
+        // ".git" is a directory in a regular clone and a file in worktrees/submodules
+        return dir.findChild(".git") != null;
+    }
+
+    /**
+     * Whether the walk ends at {@code dir} for want of a repository: its parent is outside the project's content
+     * and no VCS root lies above. A project inside a larger repository still gets the repository's rules.
+     * Only checked where content ends, and the result is cached with the rules, so the walk up stays rare.
+     */
+    private boolean isTopOfProject(VirtualFile dir, VirtualFile up) {
+        if (!project.isDisposed() && ProjectFileIndex.getInstance(project).isInContent(up)) return false;
+        for (VirtualFile p = up; p != null; p = p.getParent()) {
+            if (isVcsRoot(p)) return false;
+        }
+        return true;
+    }
+
+    private static IgnoreRuleSet readRules(VirtualFile dir, boolean vcsRoot) {
+        boolean ignoreCase = !dir.isCaseSensitive();
+        IgnoreRuleSet rules = IgnoreRuleSet.EMPTY;
+        if (vcsRoot) {
+            // Repository-local excludes rank below every .gitignore
+            VirtualFile gitDir = dir.findChild(".git");
+            VirtualFile info = gitDir != null && gitDir.isDirectory() ? gitDir.findChild("info") : null;
+            rules = rules.concat(parse(info != null ? info.findChild("exclude") : null, ignoreCase));
+        }
+        for (String name : IgnoreRuleSet.FILE_NAMES) {
+            rules = rules.concat(parse(dir.findChild(name), ignoreCase));
+        }
+        return rules;
+    }
+
+    private static IgnoreRuleSet parse(@Nullable VirtualFile ignoreFile, boolean ignoreCase) {
+        if (ignoreFile == null || ignoreFile.isDirectory()) return IgnoreRuleSet.EMPTY;
+        try {
+            return IgnoreRuleSet.parse(new String(ignoreFile.contentsToByteArray(), StandardCharsets.UTF_8), ignoreCase);
+        } catch (IOException e) {
+            return IgnoreRuleSet.EMPTY;
+        }
+    }
+
+    private static boolean affectsRules(VFileEvent event) {
+        // Cached chains hold directory identities, so any directory move invalidates them
+        if (event instanceof VFileMoveEvent) return true;
+        if (event instanceof VFilePropertyChangeEvent) {
+            VFilePropertyChangeEvent change = (VFilePropertyChangeEvent) event;
+            if (VirtualFile.PROP_NAME.equals(change.getPropertyName())) {
+                VirtualFile file = change.getFile();
+                if (file != null && file.isDirectory()) return true;
+                VirtualFile parent = file != null ? file.getParent() : null;
+                String dir = parent != null ? parent.getPath() : "";
+                return isWatched(dir, String.valueOf(change.getOldValue()))
+                        || isWatched(dir, String.valueOf(change.getNewValue()));
+            }
+            return false;
+        }
+        String path = event.getPath();
+        if (path == null) return false;
+        int slash = path.lastIndexOf('/');
+        return isWatched(path.substring(0, Math.max(0, slash)), path.substring(slash + 1));
+    }
+
+    /** An ignore file, a .git entry, or {@code exclude} directly inside {@code .git/info}. */
+    private static boolean isWatched(String dirPath, String name) {
+        if (WATCHED_NAMES.contains(name)) return true;
+        return EXCLUDE_NAME.equals(name) && dirPath.endsWith(EXCLUDE_DIR_SUFFIX);
+    }
+
+    @Override
+    public void dispose() {
+        cache.clear();
+    }
+}
@@ -0,0 +1,54 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BundleProgress;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Supplier;
+
+/** Reports a bundle run to an IDE progress indicator; loader threads run under it, so they see its cancellation. */
+public final class IndicatorProgress implements BundleProgress {
+
+    private final ProgressIndicator indicator;
+
+    public IndicatorProgress(@NotNull ProgressIndicator indicator) {
+        this.indicator = indicator;
+    }
+
+    @Override
+    public void checkCanceled() {
+        indicator.checkCanceled();
+    }
+
+    @Override
+    public void setText(@NotNull String text) {
+        indicator.setText(text);
+    }
+
+    @Override
+    public void setDetails(@NotNull String details) {
+        indicator.setText2(details);
+    }
+
+    @Override
+    public void setFraction(double fraction) {
+        indicator.setFraction(fraction);
+    }
+
+    @Override
+    public void setIndeterminate(boolean indeterminate) {
+        indicator.setIndeterminate(indeterminate);
+    }
+
+    @Override
+    public <T> T runOnWorker(@NotNull Supplier<T> work) {
+        return ProgressManager.getInstance().runProcess(work::get, indicator);
+    }
+
+    @Override
+    public @NotNull RuntimeException canceled() {
+        return new ProcessCanceledException();
+    }
+}
@@ -0,0 +1,172 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BundleFile;
+import com.github.archsx.snippetbundle.engine.ContentCompactor;
+import com.github.archsx.snippetbundle.engine.OutlineProvider;
+import com.intellij.ide.structureView.StructureViewBuilder;
+import com.intellij.ide.structureView.StructureViewModel;
+import com.intellij.ide.structureView.StructureViewTreeElement;
+import com.intellij.ide.structureView.TreeBasedStructureViewBuilder;
+import com.intellij.ide.util.treeView.smartTree.TreeElement;
+import com.intellij.lang.LanguageStructureViewBuilder;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.util.TextRange;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.PsiManager;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Renders a file as an outline: one line per declaration (class, method, field, ...) with bodies elided,
+ * indented by nesting depth. Declarations come from the language's structure view model, which is built on
+ * PSI for every language that has one, so no language plugin is needed here.
+ * <p>
+ * Runs as a non-blocking read action: a write action cancels and restarts it instead of waiting,
+ * and the caller's progress indicator cancels it.
+ */
+public final class OutlineExtractor implements OutlineProvider {
+
+    // A signature longer than this is cut; keeps one odd declaration from dominating the outline
+    private static final int MAX_SIGNATURE_SCAN = 4096;
+    private static final int MAX_DEPTH = 8;
+    private static final String INDENT = "    ";
+
+    private final Project project;
+
+    public OutlineExtractor(@NotNull Project project) {
+        this.project = project;
+    }
+
+    @Override
+    public @Nullable CharSequence outline(@NotNull BundleFile file) {
+        VirtualFile vf = VfsBundleFile.unwrap(file);
+        return vf == null ? null : extract(vf);
+    }
+
+    /** Outline of {@code file}, or null if its language has no structure view (the caller copies it whole). */
+    public @Nullable CharSequence extract(@NotNull VirtualFile file) {
+        return ReadAction.nonBlocking(() -> extractInReadAction(file)).executeSynchronously();
+    }
+
+    private @Nullable CharSequence extractInReadAction(VirtualFile file) {
+        if (project.isDisposed() || !file.isValid()) return null;
+        PsiFile psi = PsiManager.getInstance(project).findFile(file);
+        if (psi == null) return null;
+        StructureViewBuilder builder = LanguageStructureViewBuilder.INSTANCE.getStructureViewBuilder(psi);
+        if (!(builder instanceof TreeBasedStructureViewBuilder)) return null;
+
+        StructureViewModel model = ((TreeBasedStructureViewBuilder) builder).createStructureViewModel(null);
+        try {
+            CharSequence text = psi.getViewProvider().getContents();
+            ContentCompactor.Syntax syntax = ContentCompactor.Syntax.forExtension(file.getExtension());
+            StringBuilder out = new StringBuilder();
+            for (TreeElement child : model.getRoot().getChildren()) {
+                append(out, child, text, syntax, 0);
+            }
+            return out.length() == 0 ? null : out;
+        } finally {
+            Disposer.dispose(model);
+        }
+    }
+
+    private static void append(StringBuilder out, TreeElement element, CharSequence text,
+                               ContentCompactor.Syntax syntax, int depth) {
+        ProgressManager.checkCanceled();
+        if (!(element instanceof StructureViewTreeElement)) return;
+        Object value = ((StructureViewTreeElement) element).getValue();
+        if (!(value instanceof PsiElement)) return;
+        TextRange range = ((PsiElement) value).getTextRange();
+        if (range == null || range.getEndOffset() > text.length()) return;
+
+        String signature = signature(text, range.getStartOffset(), range.getEndOffset(), syntax);
+        if (signature.isEmpty()) return;
+        for (int i = 0; i < depth; i++) out.append(INDENT);
+        out.append(signature).append('\n');
+
+        if (depth + 1 >= MAX_DEPTH) return;
+        for (TreeElement child : element.getChildren()) {
+            append(out, child, text, syntax, depth + 1);
+        }
+    }
+
+    /**
+     * The declaration head of {@code text[start, end)} on one line: comments dropped, whitespace collapsed,
+     * cut where the body or initializer begins ({@code {}, {@code =}, {@code ;}, or a {@code :} ending the line).
+     */
+    static @NotNull String signature(@NotNull CharSequence text, int start, int end, @NotNull ContentCompactor.Syntax syntax) {
+        CharSequence s = text.subSequence(start, Math.min(end, start + MAX_SIGNATURE_SCAN));
+        // Doc comments sit inside the declaration's range and may contain braces ("{@link ...}")
+        s = ContentCompactor.stripComments(s, syntax);
+
+        int n = s.length();
+        int stop = n;
+        int depth = 0;
+        for (int i = 0; i < n && stop == n; i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': case '\'':
+                    i = skipQuoted(s, i);
+                    break;
+                case '(': case '[':
+                    depth++;
+                    break;
+                case ')': case ']':
+                    if (depth > 0) depth--;
+                    break;
+                case '{': case ';':
+                    if (depth == 0) stop = i;
+                    break;
+                case '=':
+                    if (depth == 0 && isAssignment(s, i)) stop = i;
+                    break;
+                case ':':
+                    if (depth == 0 && endsLine(s, i + 1)) stop = i;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder(stop);
+        boolean space = false;
+        for (int i = 0; i < stop; i++) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = sb.length() > 0;
+                continue;
+            }
+            if (space) sb.append(' ');
+            sb.append(c);
+            space = false;
+        }
+        return sb.toString();
+    }
+
+    /** A lone {@code =}, not part of {@code ==}, {@code <=}, {@code !=}, {@code =>} and the like. */
+    private static boolean isAssignment(CharSequence s, int i) {
+        char prev = i > 0 ? s.charAt(i - 1) : ' ';
+        char next = i + 1 < s.length() ? s.charAt(i + 1) : ' ';
+        return "=<>!+-*/%&|^".indexOf(prev) < 0 && next != '=' && next != '>';
+    }
+
+    private static boolean endsLine(CharSequence s, int i) {
+        while (i < s.length() && (s.charAt(i) == ' ' || s.charAt(i) == '\t' || s.charAt(i) == '\r')) i++;
+        return i >= s.length() || s.charAt(i) == '\n';
+    }
+
+    /** Index of the closing quote of the literal starting at {@code i}, or the end of its line. */
+    private static int skipQuoted(CharSequence s, int i) {
+        char q = s.charAt(i);
+        for (int j = i + 1; j < s.length(); j++) {
+            char c = s.charAt(j);
+            if (c == '\\') j++;
+            else if (c == q || c == '\n') return j;
+        }
+        return s.length();
+    }
+}
@@ -1,81 +1,768 @@
 package com.github.archsx.snippetbundle.service;
 
 import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.github.archsx.snippetbundle.model.NodeFilter;
+import com.github.archsx.snippetbundle.settings.SnippetBundleSettings;
 import com.github.archsx.snippetbundle.util.IgnoreRules;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.components.PersistentStateComponent;
 import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.components.StoragePathMacros;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.GeneratedSourcesFilter;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.Disposer;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCopyEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileCreateEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileDeleteEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.util.concurrency.AppExecutorUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Holds the files/folders selected for bundling. The selection (roots, expanded folders and removed
+ * descendants, outline mode) is stored in the workspace file and restored in the background when the project opens.
+ * <p>
+ * Loaded folders follow the VFS: creations, deletions, moves and renames under a selected root are applied to the
+ * affected nodes only, and edits refresh the totals of the edited files. Events are collected per folder and diffed
+ * in one background pass, so a VCS update touching thousands of files ends in a single view update.
+ * <p>
+ * The selection only changes on the EDT, and listeners are called right there: a Swing model reading the live child
+ * lists never sees a list that is ahead of the events it has handled.
+ */
 @Service(Service.Level.PROJECT)
-public final class QuickCopyService {
+@State(name = "SnippetBundleSelection", storages = @Storage(StoragePathMacros.WORKSPACE_FILE))
+public final class QuickCopyService implements PersistentStateComponent<QuickCopyService.SelectionState>, Disposable {
 
-    private final List<FileTreeNode> rootNodes = new ArrayList<>();
-    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    /** Persisted form of the selection; every entry is a VFS URL. */
+    public static final class SelectionState {
+        public List<String> roots = new ArrayList<>();
+        public List<String> expanded = new ArrayList<>();
+        public List<String> excluded = new ArrayList<>();
+        /** Nodes switched to outline mode. */
+        public List<String> outline = new ArrayList<>();
+    }
 
-    public void addListener(@NotNull Runnable r) {
-        listeners.add(r);
+    /** Receives every change to the selection, in order. */
+    public interface SelectionListener {
+        void selectionChanged(@NotNull SelectionEvent event);
     }
 
-    public void removeListener(@NotNull Runnable r) {
-        listeners.remove(r);
+    // Every write happens under writeLock and ends by publishing a new immutable snapshot;
+    // readers just read the volatile field, so they neither lock nor allocate.
+    private final Object writeLock = new Object();
+    private volatile SelectionSnapshot snapshot = SelectionSnapshot.EMPTY;
+    private final List<SelectionListener> listeners = new CopyOnWriteArrayList<>();
+    // Descendants the user removed from a root; pruned whenever that root's subtree is walked
+    private final Set<String> excludedUrls = ConcurrentHashMap.newKeySet();
+    // Applied while loading children, so ignored subtrees are never visited
+    private final NodeFilter childFilter = file -> (excludedUrls.isEmpty() || !excludedUrls.contains(file.getUrl()))
+            && isListable(file);
+    // State loaded from disk but not yet applied; kept so an early save does not wipe it
+    private volatile SelectionState pendingRestore;
+
+    // Changes that touch more nodes than this are announced as one RELOADED event instead of one event each
+    private static final int MAX_FINE_GRAINED_CHANGES = 200;
+
+    // Folders whose children changed on disk, mapped to a change counter so a pass only clears what it saw
+    private final Map<VirtualFile, Long> dirtyDirs = new ConcurrentHashMap<>();
+    // Selected files whose content (and so size) changed; their totals are refreshed in the same pass
+    private final Map<VirtualFile, Long> changedFiles = new ConcurrentHashMap<>();
+    private final AtomicLong dirtySeq = new AtomicLong();
+
+    private final Project project;
+
+    public QuickCopyService(@NotNull Project project) {
+        this.project = project;
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void before(@NotNull List<? extends VFileEvent> events) {
+                // Parents of deleted/moved files are only reliable before the change
+                for (VFileEvent event : events) {
+                    if (event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent) {
+                        VirtualFile file = event.getFile();
+                        if (file == null) continue;
+                        markDirty(file.getParent());
+                        markDirty(file);
+                    }
+                }
+            }
+
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                for (VFileEvent event : events) {
+                    if (event instanceof VFileContentChangeEvent) {
+                        mark(changedFiles, event.getFile());
+                    } else if (event instanceof VFileCreateEvent) {
+                        markDirty(((VFileCreateEvent) event).getParent());
+                    } else if (event instanceof VFileCopyEvent) {
+                        markDirty(((VFileCopyEvent) event).getNewParent());
+                    } else if (event instanceof VFileMoveEvent) {
+                        markDirty(((VFileMoveEvent) event).getNewParent());
+                    } else if (event instanceof VFilePropertyChangeEvent
+                            && VirtualFile.PROP_NAME.equals(((VFilePropertyChangeEvent) event).getPropertyName())) {
+                        VirtualFile file = event.getFile();
+                        if (file != null) markDirty(file.getParent());
+                        markDirty(file);
+                    }
+                }
+                if (!dirtyDirs.isEmpty() || !changedFiles.isEmpty()) scheduleSync();
+            }
+        });
     }
 
-    public @NotNull List<FileTreeNode> getRootNodesSnapshot() {
-        return new ArrayList<>(rootNodes);
+    /** The child filter without the user's removals. Needs a read action. */
+    private boolean isListable(VirtualFile file) {
+        return !IgnoreRules.shouldIgnore(file) && !isExcludedByIgnoreFiles(file) && !isOutsideProjectSources(file);
     }
 
-    public void addFiles(@NotNull List<VirtualFile> files) {
-        int added = 0;
+    private boolean isExcludedByIgnoreFiles(VirtualFile file) {
+        return SnippetBundleSettings.getInstance().getState().respectIgnoreFiles
+                && IgnoreFileMatcher.getInstance(project).isIgnored(file);
+    }
+
+    /**
+     * Whether {@code file} is where the project model stops being source: an excluded folder, a library root or
+     * generated sources. Only the boundary is pruned, so a root the user picked inside such an area still
+     * shows its contents. Needs a read action, like every other child load.
+     */
+    private boolean isOutsideProjectSources(VirtualFile file) {
+        if (!SnippetBundleSettings.getInstance().getState().respectProjectModel || project.isDisposed()) return false;
+        ProjectFileIndex index = ProjectFileIndex.getInstance(project);
+        if (!isNonSource(index, file)) return false;
+        VirtualFile parent = file.getParent();
+        return parent == null || !isNonSource(index, parent);
+    }
+
+    private boolean isNonSource(ProjectFileIndex index, VirtualFile file) {
+        return index.isExcluded(file)
+                || index.isInLibrary(file)
+                || GeneratedSourcesFilter.isGeneratedSourceByAnyFilter(file, project);
+    }
+
+    // -------- VFS sync --------
+
+    /**
+     * Remembers {@code dir} if it may be shown: a selected root, or a folder below one.
+     * Called on the write thread, so this only walks up the parents and never loads anything.
+     * A deleted or renamed root is marked itself, so the pass notices it.
+     */
+    private void markDirty(@Nullable VirtualFile dir) {
+        mark(dirtyDirs, dir);
+    }
+
+    private void mark(Map<VirtualFile, Long> pending, @Nullable VirtualFile file) {
+        if (file == null) return;
+        SelectionSnapshot current = snapshot;
+        if (current.isEmpty()) return;
+        for (VirtualFile f = file; f != null; f = f.getParent()) {
+            if (current.isRoot(f)) {
+                pending.put(file, dirtySeq.incrementAndGet());
+                return;
+            }
+        }
+    }
+
+    private void scheduleSync() {
+        // Batches arriving while a pass is pending are merged into it. The diff runs in the background;
+        // child lists change on the EDT, in the same step that fires the events describing them.
+        ReadAction.nonBlocking(this::planSync)
+                .coalesceBy(this, dirtyDirs)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.nonModal(), this::applySync)
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
+    /** Differences between the loaded children of one folder and the VFS. */
+    private static final class ChildChanges {
+        final FileTreeNode dir;
+        final List<FileTreeNode> removed = new ArrayList<>();
+        final List<VirtualFile> added = new ArrayList<>();
+        final List<FileTreeNode> renamed = new ArrayList<>();
+
+        ChildChanges(FileTreeNode dir) {
+            this.dir = dir;
+        }
+
+        int size() {
+            return removed.size() + added.size() + renamed.size();
+        }
+    }
+
+    /** What one pass found: the dirty entries it covers, and the per-folder diffs and resized files to apply. */
+    private static final class SyncPlan {
+        final Map<VirtualFile, Long> seen;
+        final Map<VirtualFile, Long> edited;
+        final List<ChildChanges> diffs = new ArrayList<>();
+        final List<FileTreeNode> resized = new ArrayList<>();
+        int changes;
+
+        SyncPlan(Map<VirtualFile, Long> seen, Map<VirtualFile, Long> edited) {
+            this.seen = seen;
+            this.edited = edited;
+        }
+    }
+
+    /** First half of a pass over the dirty folders: diff them against the VFS, under the read action. */
+    private @Nullable SyncPlan planSync() {
+        Map<VirtualFile, Long> seen = new HashMap<>(dirtyDirs);
+        Map<VirtualFile, Long> edited = new HashMap<>(changedFiles);
+        if (seen.isEmpty() && edited.isEmpty()) return null;
+
+        SyncPlan plan = new SyncPlan(seen, edited);
+        for (VirtualFile dir : seen.keySet()) {
+            ProgressManager.checkCanceled();
+            FileTreeNode node = dir.isValid() ? findNode(dir) : null;
+            if (node == null || !node.isDirectory() || !node.isChildrenLoaded()) continue;
+            ChildChanges diff = diffChildren(node, seen);
+            if (diff.size() == 0) continue;
+            plan.diffs.add(diff);
+            plan.changes += diff.size();
+        }
+        for (VirtualFile f : edited.keySet()) {
+            FileTreeNode node = f.isValid() ? findNode(f) : null;
+            if (node != null && !node.isDirectory()) plan.resized.add(node);
+        }
+        plan.changes += plan.resized.size();
+        return plan;
+    }
+
+    /** Second half, on the EDT: applies the plan under the lock and announces it. */
+    private void applySync(@Nullable SyncPlan sync) {
+        if (sync == null) return;
+        Map<VirtualFile, Long> seen = sync.seen;
+        Map<VirtualFile, Long> edited = sync.edited;
+        List<ChildChanges> plan = sync.diffs;
+        List<FileTreeNode> resized = sync.resized;
+        int changes = sync.changes;
+
+        synchronized (writeLock) {
+            List<Integer> deadRoots = new ArrayList<>();
+            List<Integer> renamedRoots = new ArrayList<>();
+            List<FileTreeNode> roots = snapshot.getRoots();
+            for (int i = 0; i < roots.size(); i++) {
+                VirtualFile f = roots.get(i).getFile();
+                if (!f.isValid()) deadRoots.add(i);
+                else if (seen.containsKey(f)) renamedRoots.add(i);
+            }
+            changes += deadRoots.size() + renamedRoots.size();
+
+            if (changes > MAX_FINE_GRAINED_CHANGES) {
+                for (ChildChanges diff : plan) applyChildChanges(diff, false);
+                for (FileTreeNode node : resized) node.refreshStats();
+                if (!deadRoots.isEmpty()) dropRootsSilently(deadRoots);
+                snapshot = snapshot.next();
+                fire(SelectionEvent.Kind.RELOADED, null, new int[0], Collections.emptyList());
+            } else {
+                for (ChildChanges diff : plan) applyChildChanges(diff, true);
+                for (FileTreeNode node : resized) {
+                    node.refreshStats();
+                    int index = indexInParent(node);
+                    if (index < 0) continue;
+                    snapshot = snapshot.next();
+                    fire(SelectionEvent.Kind.CHANGED, node.getParent(), new int[]{index},
+                            Collections.singletonList(node));
+                }
+                for (int i : renamedRoots) {
+                    FileTreeNode root = roots.get(i);
+                    snapshot = snapshot.next();
+                    fire(SelectionEvent.Kind.CHANGED, null, new int[]{i}, Collections.singletonList(root));
+                }
+                removeRootsAt(deadRoots);
+            }
+            for (Map.Entry<VirtualFile, Long> e : seen.entrySet()) dirtyDirs.remove(e.getKey(), e.getValue());
+            for (Map.Entry<VirtualFile, Long> e : edited.entrySet()) changedFiles.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private ChildChanges diffChildren(FileTreeNode dir, Map<VirtualFile, Long> dirty) {
+        ChildChanges diff = new ChildChanges(dir);
+        VirtualFile[] onDisk = dir.getFile().getChildren();
+        Set<VirtualFile> present = new HashSet<>();
+        if (onDisk != null) Collections.addAll(present, onDisk);
+
+        Set<VirtualFile> shown = new HashSet<>();
+        for (FileTreeNode child : dir.getChildren()) {
+            VirtualFile f = child.getFile();
+            if (f.isValid() && present.contains(f) && childFilter.accept(f)) {
+                shown.add(f);
+                // Renamed in place (or a folder with changed contents): same node, repaint its row
+                if (dirty.containsKey(f)) diff.renamed.add(child);
+            } else {
+                diff.removed.add(child);
+            }
+        }
+        if (onDisk != null) {
+            for (VirtualFile f : onDisk) {
+                if (!shown.contains(f) && childFilter.accept(f)) diff.added.add(f);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Applies one folder's diff, firing an event per change when {@code notify} is set.
+     * The user may have changed the folder since it was diffed, so every step re-checks.
+     * Runs on the EDT; caller holds {@link #writeLock}.
+     */
+    private void applyChildChanges(ChildChanges diff, boolean notify) {
+        FileTreeNode dir = diff.dir;
+        for (FileTreeNode child : diff.removed) {
+            int index = dir.removeLoadedChild(child);
+            if (index < 0 || !notify) continue;
+            snapshot = snapshot.next();
+            fire(SelectionEvent.Kind.REMOVED, dir, new int[]{index}, Collections.singletonList(child));
+        }
+        for (VirtualFile f : diff.added) {
+            if (dir.findLoadedChild(f) != null) continue;
+            FileTreeNode child = FileTreeNode.child(f, dir);
+            int index = dir.addLoadedChild(child);
+            if (index < 0 || !notify) continue;
+            snapshot = snapshot.next();
+            fire(SelectionEvent.Kind.ADDED, dir, new int[]{index}, Collections.singletonList(child));
+        }
+        for (FileTreeNode child : diff.renamed) {
+            // A new name may mean a new file type
+            child.refreshStats();
+            if (!notify) continue;
+            int index = dir.getChildren().indexOf(child);
+            if (index < 0) continue;
+            snapshot = snapshot.next();
+            fire(SelectionEvent.Kind.CHANGED, dir, new int[]{index}, Collections.singletonList(child));
+        }
+    }
+
+    /** Drops roots without per-root events; the caller announces a reload. Caller holds {@link #writeLock}. */
+    private void dropRootsSilently(List<Integer> ascending) {
+        List<FileTreeNode> roots = new ArrayList<>(snapshot.getRoots());
+        Map<VirtualFile, FileTreeNode> index = new HashMap<>(snapshot.index());
+        for (int i = ascending.size() - 1; i >= 0; i--) {
+            FileTreeNode node = roots.remove((int) ascending.get(i));
+            index.remove(node.getFile());
+        }
+        publish(roots, index);
+    }
+
+    /**
+     * Listeners are called on the EDT right after each change, while the service's write lock is held,
+     * so they see events strictly in order. They must not block. {@code l} is removed when {@code parent}
+     * is disposed.
+     */
+    public void addListener(@NotNull SelectionListener l, @NotNull Disposable parent) {
+        listeners.add(l);
+        Disposer.register(parent, () -> listeners.remove(l));
+    }
+
+    public void removeListener(@NotNull SelectionListener l) {
+        listeners.remove(l);
+    }
+
+    /** Current selection; immutable, safe to read from any thread. */
+    public @NotNull SelectionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /** Current roots; an immutable list, no copy is made. */
+    public @NotNull List<FileTreeNode> getRootNodes() {
+        return snapshot.getRoots();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
+    }
 
+    /**
+     * Adds files/folders as roots. Files already selected, or covered by a selected ancestor folder,
+     * are not added twice; existing roots inside a newly added folder are merged into it. A file the folder's
+     * walk would skip (gitignored, excluded from the project) was picked on purpose and stays a root of its own.
+     * Cost is O(files x depth), independent of the number of roots already selected. Safe from any thread;
+     * off the EDT the files are added later, on it.
+     */
+    public void addFiles(@NotNull List<VirtualFile> files) {
+        if (deferToEdt(() -> addFiles(files))) return;
+        // Dedupe the batch itself first; its folders also cover the other entries of the batch
+        Set<VirtualFile> incoming = new LinkedHashSet<>();
         for (VirtualFile vf : files) {
             if (vf == null || !vf.isValid()) continue;
             if (IgnoreRules.shouldIgnore(vf)) continue;
+            incoming.add(vf);
+        }
+        if (incoming.isEmpty()) return;
+        // The filter needs a read action; resolve it before taking writeLock
+        Set<VirtualFile> unlisted = ReadAction.compute(() -> findUnlisted(incoming, snapshot));
+
+        synchronized (writeLock) {
+            SelectionSnapshot current = snapshot;
+            List<FileTreeNode> newRoots = new ArrayList<>();
+            for (VirtualFile vf : incoming) {
+                if (current.isRoot(vf)) continue;
+                if (!unlisted.contains(vf) && isCovered(current, vf, incoming)) {
+                    includeCovered(vf);
+                    continue;
+                }
+                excludedUrls.remove(vf.getUrl());
+                newRoots.add(FileTreeNode.root(vf, childFilter));
+            }
+            addRoots(newRoots, unlisted);
+        }
+    }
 
-            boolean exists = false;
-            for (FileTreeNode n : rootNodes) {
-                if (n.getFile().equals(vf)) {
-                    exists = true;
+    /**
+     * Whether an ancestor of {@code vf} is already a root (or part of the same batch),
+     * with no excluded folder in between.
+     */
+    private boolean isCovered(SelectionSnapshot current, VirtualFile vf, Set<VirtualFile> batch) {
+        for (VirtualFile p = vf.getParent(); p != null; p = p.getParent()) {
+            if (current.isRoot(p) || batch.contains(p)) return true;
+            if (!excludedUrls.isEmpty() && excludedUrls.contains(p.getUrl())) return false;
+        }
+        return false;
+    }
+
+    /**
+     * Files of the batch, and current roots when the batch brings folders, that lie below a selected or incoming
+     * folder but would not be listed when it is walked: the filter rejects them or a folder in between.
+     */
+    private Set<VirtualFile> findUnlisted(Set<VirtualFile> incoming, SelectionSnapshot current) {
+        Set<VirtualFile> dirs = new HashSet<>();
+        for (VirtualFile vf : incoming) {
+            if (vf.isDirectory()) dirs.add(vf);
+        }
+        List<VirtualFile> candidates = new ArrayList<>(incoming);
+        if (!dirs.isEmpty()) {
+            for (FileTreeNode root : current.getRoots()) candidates.add(root.getFile());
+        }
+        Set<VirtualFile> unlisted = new HashSet<>();
+        for (VirtualFile vf : candidates) {
+            VirtualFile top = vf.getParent();
+            while (top != null && !current.isRoot(top) && !dirs.contains(top)) top = top.getParent();
+            if (top == null) continue;
+            for (VirtualFile f = vf; !f.equals(top); f = f.getParent()) {
+                if (!isListable(f)) {
+                    unlisted.add(vf);
                     break;
                 }
             }
+        }
+        return unlisted;
+    }
+
+    /** {@code vf} lies inside a root; if the user had removed it earlier, bring it back in place. */
+    private void includeCovered(VirtualFile vf) {
+        if (!excludedUrls.remove(vf.getUrl())) return;
+        FileTreeNode parent = findNode(vf.getParent());
+        if (parent == null) return; // shows up when the parent is loaded
+        FileTreeNode node = FileTreeNode.child(vf, parent);
+        int index = parent.addLoadedChild(node);
+        if (index < 0) return;
+        snapshot = snapshot.next();
+        fire(SelectionEvent.Kind.ADDED, parent, new int[]{index}, Collections.singletonList(node));
+    }
+
+    /** Existing roots in {@code keep} are not merged into a new folder. Caller holds {@link #writeLock}. */
+    private void addRoots(List<FileTreeNode> newRoots, Set<VirtualFile> keep) {
+        if (newRoots.isEmpty()) return;
 
-            if (!exists) {
-                rootNodes.add(new FileTreeNode(vf));
-                added++;
+        // Existing roots that sit inside one of the new folders are merged into it
+        Set<VirtualFile> newDirs = new HashSet<>();
+        for (FileTreeNode n : newRoots) {
+            if (n.isDirectory()) newDirs.add(n.getFile());
+        }
+        if (!newDirs.isEmpty()) {
+            List<FileTreeNode> current = snapshot.getRoots();
+            List<Integer> mergedIndices = new ArrayList<>();
+            for (int i = 0; i < current.size(); i++) {
+                if (keep.contains(current.get(i).getFile())) continue;
+                for (VirtualFile p = current.get(i).getFile().getParent(); p != null; p = p.getParent()) {
+                    if (newDirs.contains(p)) {
+                        mergedIndices.add(i);
+                        break;
+                    }
+                }
             }
+            removeRootsAt(mergedIndices);
+        }
+
+        SelectionSnapshot current = snapshot;
+        List<FileTreeNode> roots = new ArrayList<>(current.getRoots().size() + newRoots.size());
+        roots.addAll(current.getRoots());
+        Map<VirtualFile, FileTreeNode> index = new HashMap<>(current.index());
+        int[] indices = new int[newRoots.size()];
+        for (int i = 0; i < indices.length; i++) {
+            FileTreeNode node = newRoots.get(i);
+            indices[i] = roots.size();
+            roots.add(node);
+            index.put(node.getFile(), node);
+        }
+        publish(roots, index);
+        fire(SelectionEvent.Kind.ADDED, null, indices, newRoots);
+    }
+
+    /** Removes the roots at the given ascending indices as a single event. Caller holds {@link #writeLock}. */
+    private void removeRootsAt(List<Integer> ascending) {
+        if (ascending.isEmpty()) return;
+        SelectionSnapshot current = snapshot;
+        List<FileTreeNode> roots = new ArrayList<>(current.getRoots());
+        Map<VirtualFile, FileTreeNode> index = new HashMap<>(current.index());
+        int[] indices = new int[ascending.size()];
+        List<FileTreeNode> removed = new ArrayList<>(ascending.size());
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = ascending.get(i);
+            removed.add(roots.get(indices[i]));
+        }
+        for (int i = indices.length - 1; i >= 0; i--) {
+            FileTreeNode node = roots.remove(indices[i]);
+            index.remove(node.getFile());
+        }
+        publish(roots, index);
+        fire(SelectionEvent.Kind.REMOVED, null, indices, removed);
+    }
+
+    private void publish(List<FileTreeNode> roots, Map<VirtualFile, FileTreeNode> index) {
+        snapshot = new SelectionSnapshot(Collections.unmodifiableList(roots), Collections.unmodifiableMap(index),
+                snapshot.getVersion() + 1);
+    }
+
+    /**
+     * Finds the loaded node for {@code vf}: an index lookup for the covering root, then one step per
+     * path segment below it. Returns null if {@code vf} is not selected or its branch is not loaded yet.
+     */
+    public @Nullable FileTreeNode findNode(@Nullable VirtualFile vf) {
+        SelectionSnapshot current = snapshot;
+        List<VirtualFile> chain = new ArrayList<>();
+        FileTreeNode node = null;
+        for (VirtualFile f = vf; f != null; f = f.getParent()) {
+            node = current.rootFor(f);
+            if (node != null) break;
+            chain.add(f);
+        }
+        if (node == null) return null;
+        for (int i = chain.size() - 1; i >= 0 && node != null; i--) {
+            if (!node.isChildrenLoaded()) return null;
+            node = node.findLoadedChild(chain.get(i));
         }
+        return node;
+    }
+
+    /**
+     * Every public change below goes through this first: the selection only changes on the EDT (see the class
+     * comment), so from another thread {@code change} is queued there and this returns true.
+     */
+    private static boolean deferToEdt(Runnable change) {
+        Application app = ApplicationManager.getApplication();
+        if (app.isDispatchThread()) return false;
+        app.invokeLater(change, ModalityState.nonModal());
+        return true;
+    }
 
-        if (added > 0) notifyChanged();
+    /** Position of {@code node} among the roots or its parent's loaded children, or -1; never loads children. */
+    private int indexInParent(FileTreeNode node) {
+        FileTreeNode parent = node.getParent();
+        if (parent == null) return snapshot.getRoots().indexOf(node);
+        return parent.isChildrenLoaded() ? parent.getChildren().indexOf(node) : -1;
     }
 
+    /** Safe from any thread; off the EDT the node is removed later, on it. */
     public void removeNode(@NotNull FileTreeNode nodeToRemove) {
-        rootNodes.removeIf(n -> n == nodeToRemove);
-        for (FileTreeNode root : rootNodes) {
-            removeNodeRecursive(root, nodeToRemove);
+        if (deferToEdt(() -> removeNode(nodeToRemove))) return;
+        synchronized (writeLock) {
+            FileTreeNode parent = nodeToRemove.getParent();
+            if (parent == null) {
+                SelectionSnapshot current = snapshot;
+                if (current.rootFor(nodeToRemove.getFile()) != nodeToRemove) return;
+                String prefix = nodeToRemove.getFile().getUrl() + "/";
+                excludedUrls.removeIf(url -> url.startsWith(prefix));
+                removeRootsAt(Collections.singletonList(current.getRoots().indexOf(nodeToRemove)));
+                return;
+            }
+
+            // Nodes the user can see live in loaded subtrees; never force-load a directory here
+            int index = parent.removeLoadedChild(nodeToRemove);
+            if (index < 0) return;
+            excludedUrls.add(nodeToRemove.getFile().getUrl());
+            snapshot = snapshot.next();
+            fire(SelectionEvent.Kind.REMOVED, parent, new int[]{index}, Collections.singletonList(nodeToRemove));
         }
-        notifyChanged();
     }
 
-    private boolean removeNodeRecursive(FileTreeNode parent, FileTreeNode toRemove) {
-        if (parent.getChildren().remove(toRemove)) return true;
-        for (FileTreeNode child : parent.getChildren()) {
-            if (removeNodeRecursive(child, toRemove)) return true;
+    /** Safe from any thread, like {@link #removeNode}. */
+    public void setExpanded(@NotNull FileTreeNode node, boolean expanded) {
+        if (deferToEdt(() -> setExpanded(node, expanded))) return;
+        synchronized (writeLock) {
+            if (node.isExpanded() == expanded) return;
+            node.setExpanded(expanded);
+            snapshot = snapshot.next();
+            fire(expanded ? SelectionEvent.Kind.EXPANDED : SelectionEvent.Kind.COLLAPSED,
+                    node.getParent(), new int[0], Collections.singletonList(node));
+        }
+    }
+
+    /** Switches outline mode of {@code node} (and so of everything below it) on or off. Safe from any thread. */
+    public void setOutline(@NotNull FileTreeNode node, boolean outline) {
+        if (deferToEdt(() -> setOutline(node, outline))) return;
+        synchronized (writeLock) {
+            if (node.isOutline() == outline) return;
+            int index = indexInParent(node);
+            if (index < 0) return; // removed meanwhile
+            node.setOutline(outline);
+            snapshot = snapshot.next();
+            fire(SelectionEvent.Kind.CHANGED, node.getParent(), new int[]{index}, Collections.singletonList(node));
         }
-        return false;
     }
 
-    private void notifyChanged() {
-        for (Runnable r : listeners) r.run();
+    /** Caller holds {@link #writeLock} and has already published the snapshot the event describes. */
+    private void fire(SelectionEvent.Kind kind, @Nullable FileTreeNode parent, int[] indices,
+                      List<FileTreeNode> nodes) {
+        SelectionEvent event = new SelectionEvent(kind, parent, indices, nodes, snapshot);
+        for (SelectionListener l : listeners) l.selectionChanged(event);
     }
 
+    /** Safe from any thread, like {@link #removeNode}. */
     public void clearAll() {
-        if (rootNodes.isEmpty()) return;
-        rootNodes.clear();
-        notifyChanged();
+        if (deferToEdt(this::clearAll)) return;
+        synchronized (writeLock) {
+            List<FileTreeNode> cleared = snapshot.getRoots();
+            if (cleared.isEmpty()) return;
+            excludedUrls.clear();
+            publish(new ArrayList<>(), new HashMap<>());
+            fire(SelectionEvent.Kind.CLEARED, null, new int[0], cleared);
+        }
+    }
+
+    // -------- Persistence --------
+
+    @Override
+    public @NotNull SelectionState getState() {
+        SelectionState pending = pendingRestore;
+        if (pending != null) return pending;
+
+        SelectionState state = new SelectionState();
+        for (FileTreeNode root : snapshot.getRoots()) {
+            state.roots.add(root.getFile().getUrl());
+            collectExpanded(root, state.expanded);
+            collectOutline(root, state.outline);
+        }
+        state.excluded.addAll(excludedUrls);
+        Collections.sort(state.excluded);
+        return state;
+    }
+
+    private static void collectExpanded(FileTreeNode node, List<String> out) {
+        if (!node.isExpanded() || !node.isChildrenLoaded()) return;
+        out.add(node.getFile().getUrl());
+        for (FileTreeNode child : node.getChildren()) collectExpanded(child, out);
+    }
+
+    private static void collectOutline(FileTreeNode node, List<String> out) {
+        if (node.isOutline()) out.add(node.getFile().getUrl());
+        if (!node.isChildrenLoaded()) return;
+        for (FileTreeNode child : node.getChildren()) collectOutline(child, out);
+    }
+
+    @Override
+    public void loadState(@NotNull SelectionState state) {
+        if (state.roots.isEmpty()) return;
+        pendingRestore = state;
+
+        // Resolve URLs and re-open expanded folders off the EDT; nothing is walked beyond what was expanded
+        ReadAction.nonBlocking(() -> restore(state))
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.nonModal(), this::applyRestored)
+                .submit(AppExecutorUtil.getAppExecutorService());
     }
 
+    private List<FileTreeNode> restore(SelectionState state) {
+        VirtualFileManager vfm = VirtualFileManager.getInstance();
+        for (String url : state.excluded) {
+            // Drop exclusions whose files are gone
+            VirtualFile vf = vfm.findFileByUrl(url);
+            if (vf != null && vf.isValid()) excludedUrls.add(url);
+        }
+
+        Set<String> expanded = new HashSet<>(state.expanded);
+        List<FileTreeNode> restored = new ArrayList<>();
+        for (String url : state.roots) {
+            VirtualFile vf = vfm.findFileByUrl(url);
+            if (vf == null || !vf.isValid() || IgnoreRules.shouldIgnore(vf)) continue;
+            FileTreeNode node = FileTreeNode.root(vf, childFilter);
+            restoreExpanded(node, expanded);
+            restored.add(node);
+        }
+        restoreOutline(restored, state.outline);
+        return restored;
+    }
+
+    /** Flags the outline nodes, loading the folders on their path; they may sit below collapsed folders. */
+    private static void restoreOutline(List<FileTreeNode> roots, List<String> urls) {
+        if (urls.isEmpty()) return;
+        Map<VirtualFile, FileTreeNode> byFile = new HashMap<>();
+        for (FileTreeNode root : roots) byFile.put(root.getFile(), root);
+        VirtualFileManager vfm = VirtualFileManager.getInstance();
+        for (String url : urls) {
+            VirtualFile vf = vfm.findFileByUrl(url);
+            if (vf == null || !vf.isValid()) continue;
+            List<VirtualFile> chain = new ArrayList<>();
+            FileTreeNode node = null;
+            for (VirtualFile f = vf; f != null && node == null; f = f.getParent()) {
+                node = byFile.get(f);
+                if (node == null) chain.add(f);
+            }
+            for (int i = chain.size() - 1; i >= 0 && node != null; i--) {
+                node.getChildren();
+                node = node.findLoadedChild(chain.get(i));
+            }
+            if (node != null) node.setOutline(true);
+        }
+    }
+
+    private static void restoreExpanded(FileTreeNode node, Set<String> expanded) {
+        if (!node.isDirectory() || !expanded.contains(node.getFile().getUrl())) return;
+        node.setExpanded(true);
+        for (FileTreeNode child : node.getChildren()) restoreExpanded(child, expanded);
+    }
+
+    private void applyRestored(List<FileTreeNode> restored) {
+        synchronized (writeLock) {
+            pendingRestore = null;
+            SelectionSnapshot current = snapshot;
+            List<FileTreeNode> newRoots = new ArrayList<>();
+            for (FileTreeNode node : restored) {
+                if (current.isRoot(node.getFile())) continue; // user re-added it meanwhile
+                if (isCovered(current, node.getFile(), Collections.emptySet())) continue;
+                newRoots.add(node);
+            }
+            addRoots(newRoots, Collections.emptySet());
+        }
+    }
+
+    @Override
+    public void dispose() {
+        listeners.clear();
+    }
 }
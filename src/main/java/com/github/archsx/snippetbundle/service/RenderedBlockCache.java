@@ -0,0 +1,160 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BlockCache;
+import com.github.archsx.snippetbundle.engine.BundleFile;
+import com.github.archsx.snippetbundle.engine.LoadedFile;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-project LRU cache of prepared file blocks (decoded text, fence, language), so re-copying a bundle
+ * only reads and renders files that changed since the last run.
+ * <p>
+ * Only VFS files are cached. Entries are keyed by {@link VirtualFile} and validated against its modification stamp,
+ * timestamp and length; VFS events drop entries eagerly so stale text never outlives an edit. Total size is bounded
+ * in chars of retained buffers.
+ */
+@Service(Service.Level.PROJECT)
+public final class RenderedBlockCache implements BlockCache, Disposable {
+
+    // ~32MB of char data
+    private static final long MAX_WEIGHT = 16L * 1024 * 1024;
+
+    private static final class Entry {
+        final long modificationStamp;
+        final long timeStamp;
+        final long length;
+        final LoadedFile block;
+
+        Entry(long modificationStamp, long timeStamp, long length, LoadedFile block) {
+            this.modificationStamp = modificationStamp;
+            this.timeStamp = timeStamp;
+            this.length = length;
+            this.block = block;
+        }
+
+        boolean matches(VirtualFile vf) {
+            return vf.getModificationStamp() == modificationStamp
+                    && vf.getTimeStamp() == timeStamp
+                    && vf.getLength() == length;
+        }
+    }
+
+    private final LinkedHashMap<VirtualFile, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long weight;
+
+    public RenderedBlockCache(@NotNull Project project) {
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new BulkFileListener() {
+            @Override
+            public void after(@NotNull List<? extends VFileEvent> events) {
+                invalidate(events);
+            }
+        });
+    }
+
+    public static @NotNull RenderedBlockCache getInstance(@NotNull Project project) {
+        return project.getService(RenderedBlockCache.class);
+    }
+
+    /**
+     * Cached block for {@code file} if it has not changed since it was stored and was rendered with the same
+     * {@code variant} (see {@link LoadedFile#variant}). Hits and misses are counted per run by the engine.
+     */
+    @Override
+    public @Nullable LoadedFile get(@NotNull BundleFile file, int variant) {
+        VirtualFile vf = VfsBundleFile.unwrap(file);
+        if (vf == null) return null;
+        Entry e;
+        synchronized (entries) {
+            e = entries.get(vf);
+        }
+        return e != null && e.block.variant == variant && e.matches(vf) ? e.block : null;
+    }
+
+    @Override
+    public void put(@NotNull BundleFile file, @NotNull LoadedFile block) {
+        VirtualFile vf = VfsBundleFile.unwrap(file);
+        if (vf == null) return;
+        if (block.status == LoadedFile.Status.IGNORED) return; // depends on rules, not content
+        Entry e = new Entry(vf.getModificationStamp(), vf.getTimeStamp(), vf.getLength(), block);
+        synchronized (entries) {
+            Entry old = entries.put(vf, e);
+            if (old != null) weight -= old.block.weight();
+            weight += block.weight();
+            Iterator<Map.Entry<VirtualFile, Entry>> it = entries.entrySet().iterator();
+            while (weight > MAX_WEIGHT && it.hasNext()) {
+                weight -= it.next().getValue().block.weight();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Runs on the EDT inside the write action, so one batch costs at most one pass over the cache:
+     * files (deleted ones included) are dropped by key, folders are collected and swept together.
+     */
+    private void invalidate(@NotNull List<? extends VFileEvent> events) {
+        Set<VirtualFile> dirs = new HashSet<>();
+        synchronized (entries) {
+            for (VFileEvent event : events) {
+                VirtualFile file = event.getFile();
+                if (file != null) {
+                    if (file.isDirectory()) dirs.add(file);
+                    else remove(file);
+                }
+                if (event instanceof VFileMoveEvent) {
+                    VirtualFile oldParent = ((VFileMoveEvent) event).getOldParent();
+                    if (oldParent != null) dirs.add(oldParent);
+                }
+            }
+            if (!dirs.isEmpty()) sweep(dirs);
+        }
+    }
+
+    private void remove(VirtualFile file) {
+        Entry old = entries.remove(file);
+        if (old != null) weight -= old.block.weight();
+    }
+
+    /** Drops entries below any of {@code dirs}, and any that went invalid, walking each entry's parents once. */
+    private void sweep(Set<VirtualFile> dirs) {
+        Iterator<Map.Entry<VirtualFile, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<VirtualFile, Entry> e = it.next();
+            if (!e.getKey().isValid() || isBelow(e.getKey(), dirs)) {
+                weight -= e.getValue().block.weight();
+                it.remove();
+            }
+        }
+    }
+
+    private static boolean isBelow(VirtualFile file, Set<VirtualFile> dirs) {
+        for (VirtualFile p = file.getParent(); p != null; p = p.getParent()) {
+            if (dirs.contains(p)) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (entries) {
+            entries.clear();
+            weight = 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single change to the selection held by {@link QuickCopyService}.
+ * Carries enough information (parent + child indices) for a view to apply it without a rebuild.
+ */
+public final class SelectionEvent {
+
+    public enum Kind {
+        /** {@link #getNodes()} were inserted under {@link #getParent()} at {@link #getIndices()}. */
+        ADDED,
+        /** {@link #getNodes()} were removed from {@link #getParent()}; indices are the pre-removal positions. */
+        REMOVED,
+        /** A directory node was expanded. */
+        EXPANDED,
+        /** A directory node was collapsed. */
+        COLLAPSED,
+        /** How {@link #getNodes()} (at {@link #getIndices()} under {@link #getParent()}) are bundled changed, e.g. outline mode. */
+        CHANGED,
+        /** Every root was dropped; {@link #getNodes()} holds the former roots. */
+        CLEARED,
+        /** Too many nodes changed at once to list (e.g. a VCS update); reload everything from {@link #getSnapshot()}. */
+        RELOADED
+    }
+
+    private final Kind kind;
+    private final FileTreeNode parent;
+    private final int[] indices;
+    private final List<FileTreeNode> nodes;
+    private final SelectionSnapshot snapshot;
+
+    SelectionEvent(@NotNull Kind kind, @Nullable FileTreeNode parent, int @NotNull [] indices,
+                   @NotNull List<FileTreeNode> nodes, @NotNull SelectionSnapshot snapshot) {
+        this.kind = kind;
+        this.parent = parent;
+        this.indices = indices;
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.snapshot = snapshot;
+    }
+
+    public @NotNull Kind getKind() {
+        return kind;
+    }
+
+    /** Parent of the affected nodes, or {@code null} if they are selection roots. */
+    public @Nullable FileTreeNode getParent() {
+        return parent;
+    }
+
+    public int @NotNull [] getIndices() {
+        return indices.clone();
+    }
+
+    public @NotNull List<FileTreeNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * The selection right after this change. Indices of root-level events refer to {@link SelectionSnapshot#getRoots()};
+     * if a newer snapshot exists by the time the event is handled, child lists may have moved on as well.
+     */
+    public @NotNull SelectionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    /** Display paths of the affected nodes, e.g. for logging or persistence. */
+    public @NotNull List<String> getPaths() {
+        List<String> paths = new ArrayList<>(nodes.size());
+        for (FileTreeNode n : nodes) paths.add(n.getDisplayPath());
+        return paths;
+    }
+}
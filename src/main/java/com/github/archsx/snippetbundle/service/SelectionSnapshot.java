@@ -0,0 +1,59 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the selection roots at one point in time.
+ * {@link QuickCopyService} publishes a new instance on every change, so readers never lock or copy.
+ */
+public final class SelectionSnapshot {
+
+    static final SelectionSnapshot EMPTY = new SelectionSnapshot(Collections.emptyList(), Collections.emptyMap(), 0);
+
+    private final List<FileTreeNode> roots;
+    private final Map<VirtualFile, FileTreeNode> index;
+    private final long version;
+
+    /** Both collections must already be unmodifiable and must not be changed afterwards. */
+    SelectionSnapshot(@NotNull List<FileTreeNode> roots, @NotNull Map<VirtualFile, FileTreeNode> index, long version) {
+        this.roots = roots;
+        this.index = index;
+        this.version = version;
+    }
+
+    /** Same roots, next version; used for changes below the roots (expand, child add/remove). */
+    SelectionSnapshot next() {
+        return new SelectionSnapshot(roots, index, version + 1);
+    }
+
+    public @NotNull List<FileTreeNode> getRoots() {
+        return roots;
+    }
+
+    public boolean isEmpty() {
+        return roots.isEmpty();
+    }
+
+    /** Increases by one with every {@link SelectionEvent}; lets a view tell whether an event is still current. */
+    public long getVersion() {
+        return version;
+    }
+
+    FileTreeNode rootFor(VirtualFile file) {
+        return index.get(file);
+    }
+
+    boolean isRoot(VirtualFile file) {
+        return index.containsKey(file);
+    }
+
+    Map<VirtualFile, FileTreeNode> index() {
+        return index;
+    }
+}
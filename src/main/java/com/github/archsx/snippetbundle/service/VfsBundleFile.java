@@ -0,0 +1,74 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BundleFile;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/** A {@link VirtualFile} as the bundle engine sees it. Equal to any other wrapper of the same file. */
+public final class VfsBundleFile implements BundleFile {
+
+    public final VirtualFile file;
+
+    public VfsBundleFile(@NotNull VirtualFile file) {
+        this.file = file;
+    }
+
+    /** The wrapped file, or null if {@code file} does not come from the VFS. */
+    static @Nullable VirtualFile unwrap(@NotNull BundleFile file) {
+        return file instanceof VfsBundleFile ? ((VfsBundleFile) file).file : null;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return file.getName();
+    }
+
+    @Override
+    public @Nullable String getExtension() {
+        return file.getExtension();
+    }
+
+    @Override
+    public long getLength() {
+        return file.getLength();
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return file.getTimeStamp();
+    }
+
+    @Override
+    public @NotNull Charset getCharset() {
+        return file.getCharset();
+    }
+
+    @Override
+    public byte @NotNull [] contentsToByteArray() throws IOException {
+        return file.contentsToByteArray();
+    }
+
+    @Override
+    public boolean isValid() {
+        return file.isValid();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof VfsBundleFile && ((VfsBundleFile) o).file.equals(file);
+    }
+
+    @Override
+    public int hashCode() {
+        return file.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return file.getPath();
+    }
+}
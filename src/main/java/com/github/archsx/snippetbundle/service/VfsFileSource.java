@@ -0,0 +1,77 @@
+package com.github.archsx.snippetbundle.service;
+
+import com.github.archsx.snippetbundle.engine.BundleProgress;
+import com.github.archsx.snippetbundle.engine.FileSource;
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.intellij.openapi.application.ReadAction;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The files under the selected tree nodes, as far as the nodes' filters let them in. Folders that were never
+ * expanded are loaded on the way, each in its own non-blocking read action: a write action (typing, saving)
+ * cancels and restarts that one folder instead of waiting for the whole walk.
+ */
+public final class VfsFileSource implements FileSource {
+
+    private final List<FileTreeNode> rootNodes;
+
+    public VfsFileSource(@NotNull List<FileTreeNode> rootNodes) {
+        this.rootNodes = rootNodes;
+    }
+
+    /** A folder still to be listed, with its bundle path and whether it is in outline mode. */
+    private static final class Pending {
+        final FileTreeNode node;
+        final String path;
+        final boolean outline;
+
+        Pending(FileTreeNode node, String path, boolean outline) {
+            this.node = node;
+            this.path = path;
+            this.outline = outline;
+        }
+    }
+
+    @Override
+    public void collect(@NotNull Collector out, @NotNull BundleProgress progress) {
+        Deque<Pending> folders = new ArrayDeque<>();
+        for (FileTreeNode root : rootNodes) {
+            add(out, folders, root, "", false);
+        }
+        while (!folders.isEmpty()) {
+            progress.checkCanceled();
+            Pending folder = folders.poll();
+            for (FileTreeNode child : childrenOf(folder.node)) {
+                add(out, folders, child, folder.path, folder.outline);
+            }
+        }
+    }
+
+    private static List<FileTreeNode> childrenOf(FileTreeNode folder) {
+        // Loaded lists are immutable snapshots and need no read action
+        if (folder.isChildrenLoaded()) return folder.getChildren();
+        return ReadAction.nonBlocking(() -> folder.getFile().isValid()
+                ? folder.getChildren()
+                : Collections.<FileTreeNode>emptyList()).executeSynchronously();
+    }
+
+    private static void add(Collector out, Deque<Pending> folders, FileTreeNode node, String relativePath,
+                            boolean outline) {
+        boolean inOutline = outline || node.isOutline();
+        String nodePath = relativePath.isEmpty()
+                ? node.getFile().getName()
+                : relativePath + "/" + node.getFile().getName();
+
+        if (node.isDirectory()) {
+            folders.add(new Pending(node, nodePath, inOutline));
+        } else {
+            // A file the user dropped itself, as opposed to one found inside a dropped folder
+            out.add(new VfsBundleFile(node.getFile()), nodePath, node.getParent() == null, inOutline);
+        }
+    }
+}
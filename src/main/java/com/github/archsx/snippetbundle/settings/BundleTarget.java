@@ -0,0 +1,9 @@
+package com.github.archsx.snippetbundle.settings;
+
+/**
+ * Where a bundle is written. Each target has its own size cap in {@link SnippetBundleSettings}.
+ */
+public enum BundleTarget {
+    CLIPBOARD,
+    FILE
+}
@@ -0,0 +1,118 @@
+package com.github.archsx.snippetbundle.settings;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.ui.JBIntSpinner;
+import com.intellij.ui.components.JBCheckBox;
+import com.intellij.util.ui.FormBuilder;
+
+import javax.swing.*;
+
+/**
+ * Settings → Tools → SnippetBundle.
+ */
+public class SnippetBundleConfigurable implements Configurable {
+
+    private JBIntSpinner clipboardMaxChars;
+    private JBIntSpinner fileMaxChars;
+    private JBIntSpinner clipboardMaxTokens;
+    private JBIntSpinner fileMaxTokens;
+    private JBCheckBox respectIgnoreFiles;
+    private JBCheckBox respectProjectModel;
+    private JBCheckBox stripLicenseHeaders;
+    private JBCheckBox stripComments;
+    private JBCheckBox collapseBlankLines;
+    private JBCheckBox trimTrailingWhitespace;
+
+    @Override
+    public String getDisplayName() {
+        return "SnippetBundle";
+    }
+
+    @Override
+    public JComponent createComponent() {
+        clipboardMaxChars = new JBIntSpinner(SnippetBundleSettings.DEFAULT_CLIPBOARD_MAX_CHARS, 1_000, Integer.MAX_VALUE, 100_000);
+        fileMaxChars = new JBIntSpinner(SnippetBundleSettings.DEFAULT_FILE_MAX_CHARS, 1_000, Integer.MAX_VALUE, 1_000_000);
+        clipboardMaxTokens = new JBIntSpinner(0, 0, Integer.MAX_VALUE, 10_000);
+        fileMaxTokens = new JBIntSpinner(0, 0, Integer.MAX_VALUE, 10_000);
+        respectIgnoreFiles = new JBCheckBox("Skip files matched by .gitignore, .ignore and .snippetbundleignore");
+        respectProjectModel = new JBCheckBox("Skip excluded folders, libraries and generated sources");
+        stripLicenseHeaders = new JBCheckBox("Remove license headers");
+        stripComments = new JBCheckBox("Remove comments");
+        collapseBlankLines = new JBCheckBox("Collapse runs of blank lines");
+        trimTrailingWhitespace = new JBCheckBox("Trim trailing whitespace");
+        reset();
+        return FormBuilder.createFormBuilder()
+                .addLabeledComponent("Clipboard size limit (chars):", clipboardMaxChars)
+                .addLabeledComponent("File export size limit (chars):", fileMaxChars)
+                .addLabeledComponent("Clipboard token budget (0 = off):", clipboardMaxTokens)
+                .addLabeledComponent("File export token budget (0 = off):", fileMaxTokens)
+                .addComponent(respectIgnoreFiles)
+                .addComponent(respectProjectModel)
+                .addSeparator()
+                .addComponent(stripLicenseHeaders)
+                .addComponent(stripComments)
+                .addComponent(collapseBlankLines)
+                .addComponent(trimTrailingWhitespace)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+    }
+
+    @Override
+    public boolean isModified() {
+        SnippetBundleSettings.State s = SnippetBundleSettings.getInstance().getState();
+        return clipboardMaxChars.getNumber() != s.clipboardMaxChars
+                || fileMaxChars.getNumber() != s.fileMaxChars
+                || clipboardMaxTokens.getNumber() != s.clipboardMaxTokens
+                || fileMaxTokens.getNumber() != s.fileMaxTokens
+                || respectIgnoreFiles.isSelected() != s.respectIgnoreFiles
+                || respectProjectModel.isSelected() != s.respectProjectModel
+                || stripLicenseHeaders.isSelected() != s.stripLicenseHeaders
+                || stripComments.isSelected() != s.stripComments
+                || collapseBlankLines.isSelected() != s.collapseBlankLines
+                || trimTrailingWhitespace.isSelected() != s.trimTrailingWhitespace;
+    }
+
+    @Override
+    public void apply() {
+        SnippetBundleSettings.State s = SnippetBundleSettings.getInstance().getState();
+        s.clipboardMaxChars = clipboardMaxChars.getNumber();
+        s.fileMaxChars = fileMaxChars.getNumber();
+        s.clipboardMaxTokens = clipboardMaxTokens.getNumber();
+        s.fileMaxTokens = fileMaxTokens.getNumber();
+        s.respectIgnoreFiles = respectIgnoreFiles.isSelected();
+        s.respectProjectModel = respectProjectModel.isSelected();
+        s.stripLicenseHeaders = stripLicenseHeaders.isSelected();
+        s.stripComments = stripComments.isSelected();
+        s.collapseBlankLines = collapseBlankLines.isSelected();
+        s.trimTrailingWhitespace = trimTrailingWhitespace.isSelected();
+    }
+
+    @Override
+    public void reset() {
+        SnippetBundleSettings.State s = SnippetBundleSettings.getInstance().getState();
+        clipboardMaxChars.setNumber(s.clipboardMaxChars);
+        fileMaxChars.setNumber(s.fileMaxChars);
+        clipboardMaxTokens.setNumber(s.clipboardMaxTokens);
+        fileMaxTokens.setNumber(s.fileMaxTokens);
+        respectIgnoreFiles.setSelected(s.respectIgnoreFiles);
+        respectProjectModel.setSelected(s.respectProjectModel);
+        stripLicenseHeaders.setSelected(s.stripLicenseHeaders);
+        stripComments.setSelected(s.stripComments);
+        collapseBlankLines.setSelected(s.collapseBlankLines);
+        trimTrailingWhitespace.setSelected(s.trimTrailingWhitespace);
+    }
+
+    @Override
+    public void disposeUIResources() {
+        clipboardMaxChars = null;
+        fileMaxChars = null;
+        clipboardMaxTokens = null;
+        fileMaxTokens = null;
+        respectIgnoreFiles = null;
+        respectProjectModel = null;
+        stripLicenseHeaders = null;
+        stripComments = null;
+        collapseBlankLines = null;
+        trimTrailingWhitespace = null;
+    }
+}
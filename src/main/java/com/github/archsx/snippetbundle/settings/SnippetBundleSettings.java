@@ -0,0 +1,79 @@
+package com.github.archsx.snippetbundle.settings;
+
+import com.github.archsx.snippetbundle.engine.BundleBudget;
+import com.github.archsx.snippetbundle.engine.BundleOptions;
+import com.github.archsx.snippetbundle.engine.CompactionOptions;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Application-wide SnippetBundle settings.
+ */
+@Service(Service.Level.APP)
+@State(name = "SnippetBundleSettings", storages = @Storage("snippetBundle.xml"))
+public final class SnippetBundleSettings implements PersistentStateComponent<SnippetBundleSettings.State> {
+
+    // Clipboard contents beyond ~1M chars tend to choke browsers / chat inputs
+    public static final int DEFAULT_CLIPBOARD_MAX_CHARS = 1_200_000;
+    // Files are streamed to disk, so the cap only guards against runaway selections
+    public static final int DEFAULT_FILE_MAX_CHARS = 1_000_000_000;
+
+    public static final class State {
+        public int clipboardMaxChars = DEFAULT_CLIPBOARD_MAX_CHARS;
+        public int fileMaxChars = DEFAULT_FILE_MAX_CHARS;
+        /** Estimated-token budget per target; 0 = chars only. */
+        public int clipboardMaxTokens = 0;
+        public int fileMaxTokens = 0;
+        /** Skip paths matched by .gitignore / .ignore / .snippetbundleignore while walking folders. */
+        public boolean respectIgnoreFiles = true;
+        /** Skip folders the IDE marks as excluded, library roots and generated sources while walking folders. */
+        public boolean respectProjectModel = true;
+        /** Compaction passes applied to file content before it is bundled. */
+        public boolean stripLicenseHeaders = false;
+        public boolean stripComments = false;
+        public boolean collapseBlankLines = false;
+        public boolean trimTrailingWhitespace = false;
+    }
+
+    private State state = new State();
+
+    public static @NotNull SnippetBundleSettings getInstance() {
+        return ApplicationManager.getApplication().getService(SnippetBundleSettings.class);
+    }
+
+    @Override
+    public @NotNull State getState() {
+        return state;
+    }
+
+    @Override
+    public void loadState(@NotNull State state) {
+        this.state = state;
+    }
+
+    /** Maximum number of chars written to {@code target} before the bundle is truncated. */
+    public long getMaxChars(@NotNull BundleTarget target) {
+        switch (target) {
+            case FILE: return state.fileMaxChars;
+            case CLIPBOARD:
+            default: return state.clipboardMaxChars;
+        }
+    }
+
+    /** Char cap plus token budget for {@code target}. */
+    public @NotNull BundleBudget getBudget(@NotNull BundleTarget target) {
+        long maxTokens = target == BundleTarget.FILE ? state.fileMaxTokens : state.clipboardMaxTokens;
+        return new BundleBudget(getMaxChars(target), Math.max(BundleBudget.NO_TOKEN_LIMIT, maxTokens));
+    }
+
+    /** Budget of {@code target} and the compaction passes, as configured. */
+    public @NotNull BundleOptions getBundleOptions(@NotNull BundleTarget target) {
+        CompactionOptions compaction = new CompactionOptions(
+                state.stripLicenseHeaders, state.stripComments, state.collapseBlankLines, state.trimTrailingWhitespace);
+        return BundleOptions.of(getBudget(target)).withCompaction(compaction);
+    }
+}
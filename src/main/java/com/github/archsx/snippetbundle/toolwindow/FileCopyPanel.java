@@ -1,14 +1,30 @@
 package com.github.archsx.snippetbundle.toolwindow;
 
+import com.github.archsx.snippetbundle.engine.BundleOptions;
+import com.github.archsx.snippetbundle.engine.BundleResult;
 import com.github.archsx.snippetbundle.model.FileTreeNode;
-import com.github.archsx.snippetbundle.service.FileContentCopier;
+import com.github.archsx.snippetbundle.model.NodeStats;
+import com.github.archsx.snippetbundle.service.CopyBundleTask;
+import com.github.archsx.snippetbundle.service.FileSink;
 import com.github.archsx.snippetbundle.service.QuickCopyService;
-import com.github.archsx.snippetbundle.ui.FileListPanel;
+import com.github.archsx.snippetbundle.service.SelectionEvent;
+import com.github.archsx.snippetbundle.settings.BundleTarget;
+import com.github.archsx.snippetbundle.settings.SnippetBundleSettings;
+import com.github.archsx.snippetbundle.ui.FileTreeView;
 import com.github.archsx.snippetbundle.util.DnDUtil;
 import com.intellij.icons.AllIcons;
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.application.ModalityState;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.fileChooser.FileChooserFactory;
+import com.intellij.openapi.fileChooser.FileSaverDescriptor;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.ui.Messages;
+import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWrapper;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
 import java.awt.*;
@@ -16,17 +32,25 @@ import java.awt.datatransfer.DataFlavor;
 import java.awt.datatransfer.Transferable;
 import java.awt.dnd.*;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
-public class FileCopyPanel {
+public class FileCopyPanel implements Disposable {
 
     private final Project project;
     private final JPanel mainPanel;
-    private final FileListPanel fileListPanel;
+    private final FileTreeView fileTreeView;
     private JLabel dropZoneLabel;
 
     private JTextArea statusArea;
+    private JButton copyButton;
+    private JButton exportButton;
+    private boolean bundling;
+    private final Set<FileTreeNode> countsInFlight = Collections.newSetFromMap(new IdentityHashMap<>());
 
     private final QuickCopyService quickCopyService;
 
@@ -37,11 +61,11 @@ public class FileCopyPanel {
         mainPanel = new JPanel(new BorderLayout(0, 10));
         mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
 
-        fileListPanel = new FileListPanel();
-        fileListPanel.setQuickCopyService(quickCopyService);
-        fileListPanel.setOnTreeChanged(this::updateStatus);
+        fileTreeView = new FileTreeView();
+        fileTreeView.setQuickCopyService(quickCopyService);
+        fileTreeView.setOnTreeChanged(this::updateStatus);
 
-        JScrollPane scrollPane = new JScrollPane(fileListPanel);
+        JScrollPane scrollPane = new JScrollPane(fileTreeView);
         scrollPane.setBorder(BorderFactory.createTitledBorder("Selected Files"));
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
@@ -54,13 +78,14 @@ public class FileCopyPanel {
 
         setupDragAndDrop(dropZone);
 
-        quickCopyService.addListener(() -> SwingUtilities.invokeLater(this::refreshFromService));
-        refreshFromService();
+        // Selection changes are made and announced on the EDT, so events are applied as they come
+        quickCopyService.addListener(this::onSelectionChanged, this);
+        fileTreeView.resync();
+        updateDropZoneLabel();
     }
 
-    private void refreshFromService() {
-        fileListPanel.setRootNodes(quickCopyService.getRootNodesSnapshot());
-        updateStatus();
+    private void onSelectionChanged(SelectionEvent event) {
+        fileTreeView.applyChange(event);
         updateDropZoneLabel();
     }
 
@@ -88,17 +113,26 @@ public class FileCopyPanel {
         JPanel buttonRow = new JPanel(new BorderLayout(10, 0));
 
         // 更短更直观：一眼看懂“把选中的文件复制成 Markdown”
-        JButton copyButton = new JButton("Copy Files (Markdown)", AllIcons.Actions.Copy);
+        copyButton = new JButton("Copy Files (Markdown)", AllIcons.Actions.Copy);
         copyButton.setToolTipText("Copy selected files as Markdown to clipboard");
         makePrimaryButton(copyButton);
         copyButton.addActionListener(e -> copyAllFiles());
         buttonRow.add(copyButton, BorderLayout.CENTER);
 
+        exportButton = new JButton("Export…", AllIcons.Actions.MenuSaveall);
+        exportButton.setToolTipText("Export Bundle to File…");
+        makeSecondaryButton(exportButton);
+        exportButton.addActionListener(e -> exportToFile());
+
         JButton clearButton = new JButton("Clear", AllIcons.Actions.GC);
         clearButton.setToolTipText("Clear all selected files/folders");
         makeSecondaryButton(clearButton);
         clearButton.addActionListener(e -> clearAll());
-        buttonRow.add(clearButton, BorderLayout.EAST);
+
+        JPanel secondaryButtons = new JPanel(new BorderLayout(10, 0));
+        secondaryButtons.add(exportButton, BorderLayout.WEST);
+        secondaryButtons.add(clearButton, BorderLayout.EAST);
+        buttonRow.add(secondaryButtons, BorderLayout.EAST);
 
         bottomPanel.add(buttonRow, BorderLayout.NORTH);
 
@@ -137,7 +171,7 @@ public class FileCopyPanel {
     }
 
     private void clearAll() {
-        if (fileListPanel.getRootNodes().isEmpty()) return;
+        if (fileTreeView.getRootNodes().isEmpty()) return;
 
         int ok = Messages.showYesNoDialog(
                 project,
@@ -200,20 +234,44 @@ public class FileCopyPanel {
         }));
     }
 
+    /** Sums the roots' cached totals, O(roots); roots not counted yet are counted in the background. */
     private void updateStatus() {
-        List<FileTreeNode> roots = fileListPanel.getRootNodes();
-        int totalFiles = 0;
-        for (FileTreeNode n : roots) totalFiles += n.getFileCount();
+        List<FileTreeNode> roots = fileTreeView.getRootNodes();
+        NodeStats total = NodeStats.ZERO;
+        boolean counting = false;
+        for (FileTreeNode n : roots) {
+            NodeStats stats = n.getCachedStats();
+            if (stats == null) {
+                counting = true;
+                scheduleStats(n);
+            } else {
+                total = total.plus(stats);
+            }
+        }
 
+        String more = counting ? "+ (counting...)" : "";
         statusArea.setText(String.format(
-                "Total items: %d | Total files to copy: %d\n" +
-                        "Tip: Project View right-click → Add to Quick Copy",
-                roots.size(), totalFiles
+                "Total items: %d | Total files to copy: %d%s | binary (skipped): %d\n" +
+                        "Bundle preview: ~%s%s / ~%d%s tokens | Tip: Project View right-click → Add to Quick Copy",
+                roots.size(), total.fileCount, more, total.binaryCount,
+                StringUtil.formatFileSize(total.byteCount), counting ? "+" : "", total.tokenEstimate, counting ? "+" : ""
         ));
     }
 
+    /** Totals a root off the EDT; the result is cached on the node and the status refreshed when done. */
+    private void scheduleStats(FileTreeNode node) {
+        if (!countsInFlight.add(node)) return;
+        ReadAction.nonBlocking(node::getStats)
+                .expireWith(this)
+                .finishOnUiThread(ModalityState.any(), count -> {
+                    countsInFlight.remove(node);
+                    if (!bundling) updateStatus();
+                })
+                .submit(AppExecutorUtil.getAppExecutorService());
+    }
+
     private void updateDropZoneLabel() {
-        if (fileListPanel.getRootNodes().isEmpty()) {
+        if (fileTreeView.getRootNodes().isEmpty()) {
             dropZoneLabel.setText("Drag & Drop files or folders here");
         } else {
             dropZoneLabel.setText("Drag & Drop more files or folders here");
@@ -221,7 +279,7 @@ public class FileCopyPanel {
     }
 
     private void copyAllFiles() {
-        List<FileTreeNode> roots = fileListPanel.getRootNodes();
+        List<FileTreeNode> roots = fileTreeView.getRootNodes();
         if (roots.isEmpty()) {
             Messages.showInfoMessage(
                     "Please add files or folders first (Drag&Drop or Project View right-click).",
@@ -230,23 +288,144 @@ public class FileCopyPanel {
             return;
         }
 
+        if (bundling) return;
+        setBundling(true);
+        statusArea.setText("Bundling files...");
+
+        // Reading + rendering happens off the EDT; clipboard is only touched once the task completes
+        new CopyBundleTask(project, new ArrayList<>(roots), new CopyBundleTask.Callback() {
+            @Override
+            public void onCopied(@NotNull BundleResult r) {
+                setBundling(false);
+                statusArea.setText(String.format(
+                        "Copied %d files | chars: %d | ~tokens: %d | cache: %d hit / %d miss\n" +
+                                "skipped ignored: %d | skipped binary: %d%s%s%s",
+                        r.copiedFiles,
+                        r.totalChars,
+                        r.totalTokens,
+                        r.cacheHits,
+                        r.cacheMisses,
+                        r.skippedIgnored,
+                        r.skippedBinary,
+                        unreadableNote(r),
+                        truncationNote(r),
+                        compactionNote(r)
+                ));
+            }
+
+            @Override
+            public void onCancelled() {
+                setBundling(false);
+                statusArea.setText("Copy cancelled, clipboard unchanged");
+            }
+
+            @Override
+            public void onFailed(@NotNull Throwable error) {
+                setBundling(false);
+                updateStatus();
+                Messages.showErrorDialog("Failed to copy files: " + error.getMessage(), "Copy Failed");
+            }
+        }).queue();
+    }
+
+    private void exportToFile() {
+        List<FileTreeNode> roots = fileTreeView.getRootNodes();
+        if (roots.isEmpty()) {
+            Messages.showInfoMessage(
+                    "Please add files or folders first (Drag&Drop or Project View right-click).",
+                    "No Files to Export"
+            );
+            return;
+        }
+        if (bundling) return;
+
+        FileSaverDescriptor descriptor = new FileSaverDescriptor(
+                "Export Bundle to File", "Save the selected files as a single Markdown file", "md");
+        VirtualFileWrapper wrapper = FileChooserFactory.getInstance()
+                .createSaveFileDialog(descriptor, project)
+                .save((VirtualFile) null, "snippet-bundle.md");
+        if (wrapper == null) return;
+
+        FileSink sink;
         try {
-            FileContentCopier.CopyResult r = FileContentCopier.copyFilesMarkdown(roots);
-            statusArea.setText(String.format(
-                    "Copied %d files | chars: %d\n" +
-                            "skipped ignored: %d | skipped binary: %d%s",
-                    r.copiedFiles,
-                    r.totalChars,
-                    r.skippedIgnored,
-                    r.skippedBinary,
-                    r.truncated ? " | TRUNCATED" : ""
-            ));
-        } catch (Exception e) {
-            Messages.showErrorDialog("Failed to copy files: " + e.getMessage(), "Copy Failed");
+            sink = new FileSink(wrapper.getFile().toPath());
+        } catch (IOException e) {
+            Messages.showErrorDialog(project, "Failed to create file: " + e.getMessage(), "Export Failed");
+            return;
+        }
+
+        setBundling(true);
+        statusArea.setText("Exporting bundle...");
+
+        BundleOptions options = SnippetBundleSettings.getInstance().getBundleOptions(BundleTarget.FILE);
+        new CopyBundleTask(project, "Exporting bundle to file", new ArrayList<>(roots), sink, options,
+                new CopyBundleTask.Callback() {
+                    @Override
+                    public void onCopied(@NotNull BundleResult r) {
+                        setBundling(false);
+                        statusArea.setText(String.format(
+                                "Exported %d files to %s | chars: %d | ~tokens: %d | cache: %d hit / %d miss\n" +
+                                        "skipped ignored: %d | skipped binary: %d%s%s%s",
+                                r.copiedFiles,
+                                sink.getTarget().getFileName(),
+                                r.totalChars,
+                                r.totalTokens,
+                                r.cacheHits,
+                                r.cacheMisses,
+                                r.skippedIgnored,
+                                r.skippedBinary,
+                                unreadableNote(r),
+                                truncationNote(r),
+                                compactionNote(r)
+                        ));
+                    }
+
+                    @Override
+                    public void onCancelled() {
+                        setBundling(false);
+                        statusArea.setText("Export cancelled, file unchanged");
+                    }
+
+                    @Override
+                    public void onFailed(@NotNull Throwable error) {
+                        setBundling(false);
+                        updateStatus();
+                        Messages.showErrorDialog("Failed to export files: " + error.getMessage(), "Export Failed");
+                    }
+                }).queue();
+    }
+
+    private static String compactionNote(BundleResult r) {
+        if (r.contentCharsAfter >= r.contentCharsBefore) return "";
+        return String.format(" | compacted %d → %d chars", r.contentCharsBefore, r.contentCharsAfter);
+    }
+
+    private static String unreadableNote(BundleResult r) {
+        return r.unreadable > 0 ? String.format(" | unreadable: %d", r.unreadable) : "";
+    }
+
+    private static String truncationNote(BundleResult r) {
+        if (!r.truncated) return "";
+        StringBuilder note = new StringBuilder(" | TRUNCATED");
+        if (!r.files.isEmpty() && r.files.get(r.files.size() - 1).partial) {
+            note.append(", cut ").append(r.files.get(r.files.size() - 1).path);
         }
+        if (r.omittedFiles > 0) note.append(", left out ").append(r.omittedFiles).append(" file(s)");
+        return note.toString();
+    }
+
+    private void setBundling(boolean bundling) {
+        this.bundling = bundling;
+        copyButton.setEnabled(!bundling);
+        exportButton.setEnabled(!bundling);
     }
 
     public JComponent getContent() {
         return mainPanel;
     }
+
+    @Override
+    public void dispose() {
+        // Listeners registered with this panel are removed through the Disposer
+    }
 }
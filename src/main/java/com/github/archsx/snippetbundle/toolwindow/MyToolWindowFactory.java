@@ -17,6 +17,7 @@ public class MyToolWindowFactory implements ToolWindowFactory {
         ContentFactory contentFactory = ContentFactory.getInstance();
         FileCopyPanel panel = new FileCopyPanel(project);
         Content content = contentFactory.createContent(panel.getContent(), "", false);
+        content.setDisposer(panel);
         toolWindow.getContentManager().addContent(content);
     }
 }
@@ -0,0 +1,111 @@
+package com.github.archsx.snippetbundle.ui;
+
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.intellij.icons.AllIcons;
+import com.intellij.util.ui.EmptyIcon;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import javax.swing.tree.TreeCellRenderer;
+import java.awt.*;
+
+/**
+ * Stamps one row at a time: icon + name (italic in outline mode), followed by a remove button that is only painted
+ * for the hovered row. The button slot is always reserved so row bounds stay stable for hit-testing.
+ */
+public class FileTreeCellRenderer extends JPanel implements TreeCellRenderer {
+
+    private final JLabel nameLabel = new JLabel();
+    private final JLabel removeLabel = new JLabel();
+    private final Icon removeIcon = AllIcons.General.Remove;
+    private final Icon removePlaceholder = EmptyIcon.create(removeIcon);
+    private Font plainFont;
+    private Font boldFont;
+    private Font italicFont;
+    private Font boldItalicFont;
+    private boolean hovered;
+    private int hoveredRow = -1;
+
+    public FileTreeCellRenderer() {
+        setLayout(new BoxLayout(this, BoxLayout.X_AXIS));
+        setOpaque(false);
+
+        nameLabel.setIconTextGap(JBUI.scale(6));
+        add(nameLabel);
+
+        // Gap after name: ~3-5 个中文字宽（默认 4）
+        add(Box.createRigidArea(new Dimension(calcGapAfterNamePx(nameLabel, 4), 0)));
+
+        removeLabel.setBorder(JBUI.Borders.empty(2, 6));
+        add(removeLabel);
+    }
+
+    public void setHoveredRow(int row) {
+        this.hoveredRow = row;
+    }
+
+    /** Width of the trailing remove button slot, measured from the right edge of a row. */
+    public int getRemoveSlotWidth() {
+        return removeIcon.getIconWidth() + JBUI.scale(12);
+    }
+
+    @Override
+    public Component getTreeCellRendererComponent(JTree tree, Object value, boolean selected, boolean expanded,
+                                                  boolean leaf, int row, boolean hasFocus) {
+        if (plainFont == null || !plainFont.equals(tree.getFont())) {
+            plainFont = tree.getFont();
+            boldFont = plainFont.deriveFont(Font.BOLD);
+            italicFont = plainFont.deriveFont(Font.ITALIC);
+            boldItalicFont = plainFont.deriveFont(Font.BOLD | Font.ITALIC);
+        }
+
+        hovered = row == hoveredRow;
+        if (value instanceof FileTreeNode) {
+            FileTreeNode node = (FileTreeNode) value;
+            // 大纲模式：设置处标注，子节点斜体
+            nameLabel.setText(node.isOutline() ? node.getFile().getName() + "  (outline)" : node.getFile().getName());
+            nameLabel.setIcon(node.isDirectory()
+                    ? UIManager.getIcon("Tree.folderIcon")
+                    : UIManager.getIcon("Tree.fileIcon"));
+            boolean outline = node.isInOutlineMode();
+            nameLabel.setFont(node.isDirectory()
+                    ? (outline ? boldItalicFont : boldFont)
+                    : (outline ? italicFont : plainFont));
+        } else {
+            nameLabel.setText(String.valueOf(value));
+            nameLabel.setIcon(null);
+            nameLabel.setFont(plainFont);
+        }
+        nameLabel.setForeground(selected && tree.hasFocus()
+                ? UIManager.getColor("Tree.selectionForeground")
+                : tree.getForeground());
+        removeLabel.setIcon(hovered ? removeIcon : removePlaceholder);
+        return this;
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        // hover 时整行轻微高亮
+        if (hovered) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                Color base = UIManager.getColor("List.selectionBackground");
+                if (base == null) base = new Color(0, 0, 0);
+                g2.setComposite(AlphaComposite.SrcOver.derive(0.12f));
+                g2.setColor(base);
+                int arc = JBUI.scale(8);
+                g2.fillRoundRect(0, JBUI.scale(1), getWidth(), getHeight() - JBUI.scale(2), arc, arc);
+            } finally {
+                g2.dispose();
+            }
+        }
+        super.paintComponent(g);
+    }
+
+    private static int calcGapAfterNamePx(JComponent c, int chars) {
+        FontMetrics fm = c.getFontMetrics(c.getFont());
+        int w = fm.charWidth('中');
+        if (w <= 0) w = fm.charWidth('W');
+        return JBUI.scale(Math.max(8, w * chars));
+    }
+}
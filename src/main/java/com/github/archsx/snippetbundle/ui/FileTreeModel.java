@@ -0,0 +1,133 @@
+package com.github.archsx.snippetbundle.ui;
+
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+
+import javax.swing.event.EventListenerList;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Swing model over the selected {@link FileTreeNode}s.
+ * The (hidden) root is a sentinel whose children are the selection roots;
+ * directory children are read straight from the nodes, so they load only when JTree asks for them.
+ */
+public class FileTreeModel implements TreeModel {
+
+    private final Object root = new Object() {
+        @Override
+        public String toString() {
+            return "Selected Files";
+        }
+    };
+
+    private final EventListenerList listeners = new EventListenerList();
+    private List<FileTreeNode> rootNodes = Collections.emptyList();
+
+    public List<FileTreeNode> getRootNodes() {
+        return rootNodes;
+    }
+
+    public void setRootNodes(List<FileTreeNode> rootNodes) {
+        this.rootNodes = rootNodes;
+        reload();
+    }
+
+    /** Swaps the roots without notifying; the caller fires the matching fine-grained event itself. */
+    void replaceRootNodes(List<FileTreeNode> rootNodes) {
+        this.rootNodes = rootNodes;
+    }
+
+    /** Builds the path from the hidden root down to {@code node}. */
+    public TreePath pathTo(FileTreeNode node) {
+        List<Object> segments = new ArrayList<>();
+        for (FileTreeNode n = node; n != null; n = n.getParent()) segments.add(0, n);
+        segments.add(0, root);
+        return new TreePath(segments.toArray());
+    }
+
+    /** Builds the path of the parent that holds {@code node}'s siblings; the hidden root for selection roots. */
+    public TreePath parentPath(FileTreeNode parent) {
+        return parent == null ? new TreePath(root) : pathTo(parent);
+    }
+
+    public void reload() {
+        TreeModelEvent event = new TreeModelEvent(this, new TreePath(root));
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeStructureChanged(event);
+        }
+    }
+
+    /** {@code children} are already present under {@code parent} (null = root) at {@code indices}. */
+    public void nodesInserted(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, parentPath(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesInserted(event);
+        }
+    }
+
+    /** {@code children} were removed from {@code parent} (null = root); indices are pre-removal positions. */
+    public void nodesRemoved(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, parentPath(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesRemoved(event);
+        }
+    }
+
+    /** {@code children} of {@code parent} (null = root) at {@code indices} need repainting. */
+    public void nodesChanged(FileTreeNode parent, int[] indices, Object[] children) {
+        TreeModelEvent event = new TreeModelEvent(this, parentPath(parent), indices, children);
+        for (TreeModelListener l : listeners.getListeners(TreeModelListener.class)) {
+            l.treeNodesChanged(event);
+        }
+    }
+
+    @Override
+    public Object getRoot() {
+        return root;
+    }
+
+    @Override
+    public Object getChild(Object parent, int index) {
+        return childrenOf(parent).get(index);
+    }
+
+    @Override
+    public int getChildCount(Object parent) {
+        return childrenOf(parent).size();
+    }
+
+    @Override
+    public boolean isLeaf(Object node) {
+        return node != root && !((FileTreeNode) node).isDirectory();
+    }
+
+    @Override
+    public void valueForPathChanged(TreePath path, Object newValue) {
+        // Not editable
+    }
+
+    @Override
+    public int getIndexOfChild(Object parent, Object child) {
+        if (parent == null || child == null) return -1;
+        return childrenOf(parent).indexOf(child);
+    }
+
+    @Override
+    public void addTreeModelListener(TreeModelListener l) {
+        listeners.add(TreeModelListener.class, l);
+    }
+
+    @Override
+    public void removeTreeModelListener(TreeModelListener l) {
+        listeners.remove(TreeModelListener.class, l);
+    }
+
+    private List<FileTreeNode> childrenOf(Object parent) {
+        return parent == root ? rootNodes : ((FileTreeNode) parent).getChildren();
+    }
+}
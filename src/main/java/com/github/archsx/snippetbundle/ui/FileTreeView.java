@@ -0,0 +1,272 @@
+package com.github.archsx.snippetbundle.ui;
+
+import com.github.archsx.snippetbundle.model.FileTreeNode;
+import com.github.archsx.snippetbundle.service.QuickCopyService;
+import com.github.archsx.snippetbundle.service.SelectionEvent;
+import com.github.archsx.snippetbundle.service.SelectionSnapshot;
+import com.intellij.ui.treeStructure.Tree;
+import com.intellij.util.ui.JBUI;
+
+import javax.swing.*;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.tree.TreePath;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Virtualized view of the selected files: a single {@link Tree} that only paints the rows in the viewport.
+ * Expand state is mirrored onto {@link FileTreeNode#setExpanded(boolean)}, so directories load lazily on expand.
+ */
+public class FileTreeView extends Tree {
+
+    private final FileTreeModel treeModel;
+    private final FileTreeCellRenderer renderer;
+    private Runnable onTreeChanged;
+    private QuickCopyService quickCopyService;
+    private int hoveredRow = -1;
+    // Version of the selection snapshot the model currently shows
+    private long appliedVersion = -1;
+
+    public FileTreeView() {
+        this(new FileTreeModel());
+    }
+
+    private FileTreeView(FileTreeModel model) {
+        super(model);
+        this.treeModel = model;
+        this.renderer = new FileTreeCellRenderer();
+
+        setRootVisible(false);
+        setShowsRootHandles(true);
+        setCellRenderer(renderer);
+        // Fixed row height + large model => FixedHeightLayoutCache, expand/collapse touches only changed rows
+        setRowHeight(calculateRowHeight());
+        setLargeModel(true);
+        setOpaque(false);
+        ToolTipManager.sharedInstance().registerComponent(this);
+
+        addTreeExpansionListener(new TreeExpansionListener() {
+            @Override
+            public void treeExpanded(TreeExpansionEvent event) {
+                onExpansionChanged(event.getPath(), true);
+            }
+
+            @Override
+            public void treeCollapsed(TreeExpansionEvent event) {
+                onExpansionChanged(event.getPath(), false);
+            }
+        });
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                setHoveredRow(getRowForLocation(e.getX(), e.getY()));
+                setCursor(isOverRemoveButton(e)
+                        ? Cursor.getPredefinedCursor(Cursor.HAND_CURSOR)
+                        : Cursor.getDefaultCursor());
+            }
+
+            @Override
+            public void mouseExited(MouseEvent e) {
+                setHoveredRow(-1);
+                setCursor(Cursor.getDefaultCursor());
+            }
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (e.isPopupTrigger()) showPopup(e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (e.isPopupTrigger()) {
+                    showPopup(e);
+                    return;
+                }
+                if (!SwingUtilities.isLeftMouseButton(e) || !isOverRemoveButton(e)) return;
+                TreePath path = getPathForLocation(e.getX(), e.getY());
+                if (path != null && path.getLastPathComponent() instanceof FileTreeNode && quickCopyService != null) {
+                    quickCopyService.removeNode((FileTreeNode) path.getLastPathComponent());
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    public void setQuickCopyService(QuickCopyService service) {
+        this.quickCopyService = service;
+    }
+
+    public List<FileTreeNode> getRootNodes() {
+        return treeModel.getRootNodes();
+    }
+
+    public void setRootNodes(List<FileTreeNode> rootNodes) {
+        treeModel.setRootNodes(rootNodes);
+        restoreExpandedState();
+        if (onTreeChanged != null) onTreeChanged.run();
+    }
+
+    public void setOnTreeChanged(Runnable callback) {
+        this.onTreeChanged = callback;
+    }
+
+    public void rebuildTree() {
+        setRootNodes(treeModel.getRootNodes());
+    }
+
+    /** Shows the service's current selection, dropping any fine-grained state. */
+    public void resync() {
+        if (quickCopyService == null) return;
+        SelectionSnapshot latest = quickCopyService.getSnapshot();
+        appliedVersion = latest.getVersion();
+        setHoveredRow(-1);
+        setRootNodes(latest.getRoots());
+    }
+
+    /**
+     * Applies one selection change as a fine-grained model notification. Runs on the EDT.
+     * The service changes the selection on the EDT and notifies right away, so the event matches the nodes.
+     * An event handled late, after the selection has moved on, may not; the view then reloads from the latest
+     * snapshot instead.
+     */
+    public void applyChange(SelectionEvent event) {
+        if (event.getVersion() <= appliedVersion) return; // already covered by a resync
+        if (quickCopyService != null && quickCopyService.getSnapshot().getVersion() != event.getVersion()) {
+            resync();
+            return;
+        }
+        appliedVersion = event.getVersion();
+        treeModel.replaceRootNodes(event.getSnapshot().getRoots());
+
+        FileTreeNode parent = event.getParent();
+        Object[] nodes = event.getNodes().toArray();
+        switch (event.getKind()) {
+            case ADDED:
+                treeModel.nodesInserted(parent, event.getIndices(), nodes);
+                if (parent == null) {
+                    // New roots may carry restored expand state
+                    for (Object n : nodes) restoreExpanded((FileTreeNode) n);
+                }
+                break;
+            case REMOVED:
+                treeModel.nodesRemoved(parent, event.getIndices(), nodes);
+                setHoveredRow(-1);
+                break;
+            case EXPANDED:
+            case COLLAPSED:
+                for (Object n : nodes) {
+                    TreePath path = treeModel.pathTo((FileTreeNode) n);
+                    boolean expand = event.getKind() == SelectionEvent.Kind.EXPANDED;
+                    if (isExpanded(path) == expand) continue;
+                    if (expand) expandPath(path);
+                    else collapsePath(path);
+                }
+                break;
+            case CHANGED:
+                treeModel.nodesChanged(parent, event.getIndices(), nodes);
+                // Descendants inherit outline mode, so their rows change too
+                repaint();
+                break;
+            case CLEARED:
+                treeModel.reload();
+                setHoveredRow(-1);
+                break;
+            case RELOADED:
+                resync();
+                return;
+        }
+        if (onTreeChanged != null) onTreeChanged.run();
+    }
+
+    /** Context menu for the clicked row; acts on the whole selection if the row is part of it. */
+    private void showPopup(MouseEvent e) {
+        TreePath clicked = getPathForLocation(e.getX(), e.getY());
+        if (clicked == null || !(clicked.getLastPathComponent() instanceof FileTreeNode) || quickCopyService == null) return;
+        if (!isPathSelected(clicked)) setSelectionPath(clicked);
+
+        List<FileTreeNode> targets = new ArrayList<>();
+        TreePath[] selected = getSelectionPaths();
+        if (selected != null) {
+            for (TreePath p : selected) {
+                if (p.getLastPathComponent() instanceof FileTreeNode) targets.add((FileTreeNode) p.getLastPathComponent());
+            }
+        }
+        boolean outline = ((FileTreeNode) clicked.getLastPathComponent()).isOutline();
+
+        JPopupMenu menu = new JPopupMenu();
+        JCheckBoxMenuItem outlineItem = new JCheckBoxMenuItem("Outline Only (Signatures, No Bodies)", outline);
+        outlineItem.addActionListener(a -> {
+            for (FileTreeNode node : targets) quickCopyService.setOutline(node, !outline);
+        });
+        menu.add(outlineItem);
+        JMenuItem removeItem = new JMenuItem("Remove");
+        removeItem.addActionListener(a -> {
+            for (FileTreeNode node : targets) quickCopyService.removeNode(node);
+        });
+        menu.add(removeItem);
+        menu.show(this, e.getX(), e.getY());
+    }
+
+    private void onExpansionChanged(TreePath path, boolean expanded) {
+        Object last = path.getLastPathComponent();
+        if (!(last instanceof FileTreeNode)) return;
+        if (quickCopyService != null) quickCopyService.setExpanded((FileTreeNode) last, expanded);
+        else ((FileTreeNode) last).setExpanded(expanded);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent event) {
+        TreePath path = getPathForLocation(event.getX(), event.getY());
+        if (path == null || !(path.getLastPathComponent() instanceof FileTreeNode)) return null;
+        // Tooltip = full path
+        return ((FileTreeNode) path.getLastPathComponent()).getFile().getPresentableUrl();
+    }
+
+    /** Re-expands nodes flagged as expanded; only descends into already expanded subtrees. */
+    private void restoreExpandedState() {
+        for (FileTreeNode root : treeModel.getRootNodes()) {
+            restoreExpanded(root);
+        }
+    }
+
+    private void restoreExpanded(FileTreeNode node) {
+        if (!node.isDirectory() || !node.isExpanded()) return;
+        expandPath(treeModel.pathTo(node));
+        for (FileTreeNode child : node.getChildren()) {
+            restoreExpanded(child);
+        }
+    }
+
+    private boolean isOverRemoveButton(MouseEvent e) {
+        int row = getRowForLocation(e.getX(), e.getY());
+        if (row < 0) return false;
+        Rectangle bounds = getRowBounds(row);
+        return bounds != null && e.getX() >= bounds.x + bounds.width - renderer.getRemoveSlotWidth();
+    }
+
+    private void setHoveredRow(int row) {
+        if (row == hoveredRow) return;
+        repaintRow(hoveredRow);
+        hoveredRow = row;
+        renderer.setHoveredRow(row);
+        repaintRow(row);
+    }
+
+    private void repaintRow(int row) {
+        if (row < 0) return;
+        Rectangle bounds = getRowBounds(row);
+        if (bounds != null) repaint(0, bounds.y, getWidth(), bounds.height);
+    }
+
+    private int calculateRowHeight() {
+        FontMetrics fm = getFontMetrics(getFont());
+        int h = (int) (fm.getHeight() * 1.75f);
+        return Math.max(JBUI.scale(28), h);
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.archsx.snippetbundle.cli;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundleCliTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final ByteArrayOutputStream errBytes = new ByteArrayOutputStream();
+
+    private int run(String... args) {
+        try (PrintStream err = new PrintStream(errBytes, true, StandardCharsets.UTF_8)) {
+            return BundleCli.run(args, err);
+        }
+    }
+
+    private String err() {
+        return errBytes.toString(StandardCharsets.UTF_8);
+    }
+
+    private Path sources() throws IOException {
+        Path dir = temp.getRoot().toPath().resolve("src");
+        Files.createDirectories(dir);
+        Files.write(dir.resolve("A.java"), "class A {}\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(dir.resolve("run.log"), "noise\n".getBytes(StandardCharsets.UTF_8));
+        return dir;
+    }
+
+    private Path output() {
+        return temp.getRoot().toPath().resolve("out/bundle.md");
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void writesTheBundleToTheOutputFileAndASummary() throws IOException {
+        assertEquals(0, run("-o", output().toString(), sources().toString()));
+        String bundle = read(output());
+        assertTrue(bundle.contains("### src/A.java\n```java\nclass A {}\n```"));
+        assertTrue(bundle.contains("### src/run.log"));
+        assertTrue(err().startsWith("Bundled 2 file(s)"));
+    }
+
+    @Test
+    public void excludeFromReadsPatternsFromAFile() throws IOException {
+        Path patterns = temp.getRoot().toPath().resolve("patterns");
+        Files.write(patterns, "# logs\n*.log\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, run("-q", "--exclude-from", patterns.toString(), "-o", output().toString(),
+                sources().toString()));
+        assertFalse(read(output()).contains("run.log"));
+        assertEquals("", err());
+    }
+
+    @Test
+    public void argumentsAfterDoubleDashArePaths() throws IOException {
+        // "-q" is a root here, not the option, so the run fails on the missing folder and still prints its error
+        assertEquals(1, run("-o", output().toString(), "--", sources().toString(), "-q"));
+        assertTrue(err(), err().startsWith("bundle: java.nio.file.NoSuchFileException"));
+        assertTrue(err().contains("-q"));
+        assertFalse(Files.exists(output()));
+    }
+
+    @Test
+    public void missingRootFailsWithOneLineAndLeavesNoOutput() {
+        Path missing = temp.getRoot().toPath().resolve("missing");
+        assertEquals(1, run("-o", output().toString(), missing.toString()));
+        assertEquals(1, err().split("\n").length);
+        assertFalse(Files.exists(output()));
+    }
+
+    @Test
+    public void badNumbersAreUsageErrors() {
+        assertEquals(2, run("--max-chars", "12k"));
+        assertTrue(err().startsWith("--max-chars needs a positive number, got: 12k\nUsage:"));
+        errBytes.reset();
+        assertEquals(2, run("--max-tokens", "0"));
+        assertTrue(err().startsWith("--max-tokens needs a positive number, got: 0\n"));
+    }
+
+    @Test
+    public void unknownCharsetOptionAndMissingValueAreUsageErrors() throws IOException {
+        assertEquals(2, run("--charset", "no-such-charset", sources().toString()));
+        assertTrue(err().startsWith("Unknown charset: no-such-charset\n"));
+        errBytes.reset();
+        assertEquals(2, run("--frobnicate"));
+        assertTrue(err().startsWith("Unknown option: --frobnicate\n"));
+        errBytes.reset();
+        assertEquals(2, run("-o"));
+        assertTrue(err().startsWith("Missing value for -o\n"));
+        errBytes.reset();
+        assertEquals(2, run("--exclude-from", temp.getRoot().toPath().resolve("none").toString()));
+        assertTrue(err().startsWith("Cannot read "));
+    }
+
+    @Test
+    public void helpPrintsUsageAndSucceeds() {
+        assertEquals(0, run("--help"));
+        assertTrue(err().startsWith("Usage: bundle"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BundleEngineTest {
+
+    private static FileSource source(MemoryFile... files) {
+        List<MemoryFile> list = Arrays.asList(files);
+        return (out, progress) -> {
+            for (MemoryFile f : list) out.add(f, "root/" + f.name, false, false);
+        };
+    }
+
+    private static BundleResult write(FileSource source, BundleBudget budget, StringWriter out) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            return new BundleEngine(executor, 4)
+                    .write(source, out, BundleOptions.of(budget), null, BundleProgress.NONE);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sortsByPathAndFencesEachFile() throws IOException {
+        StringWriter out = new StringWriter();
+        BundleResult r = write(source(new MemoryFile("b.py", "print(1)\n"), new MemoryFile("A.java", "class A {}")),
+                BundleBudget.chars(1_000_000), out);
+        assertEquals("### root/A.java\n```java\nclass A {}\n```\n\n### root/b.py\n```python\nprint(1)\n```",
+                out.toString());
+        assertEquals(2, r.copiedFiles);
+        assertFalse(r.truncated);
+    }
+
+    @Test
+    public void fenceIsLongerThanAnyBacktickRunInside() throws IOException {
+        StringWriter out = new StringWriter();
+        write(source(new MemoryFile("x.md", "a ```` b\n")), BundleBudget.chars(1_000_000), out);
+        assertTrue(out.toString().startsWith("### root/x.md\n`````markdown\n"));
+    }
+
+    @Test
+    public void oversizedFirstFileIsCutAndCountedAndTheRestIsLeftOut() throws IOException {
+        // One-letter words cost about a token per two chars, well above the packer's length-based estimate,
+        // so all three files are planned in and the first one alone overflows the token budget once read
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < 2000; i++) words.append("a ");
+        StringWriter out = new StringWriter();
+        BundleResult r = write(source(new MemoryFile("a.txt", words.toString()), new MemoryFile("b.txt", "b"),
+                new MemoryFile("c.txt", "c")), new BundleBudget(1_000_000, 1500), out);
+        assertEquals(1, r.copiedFiles);
+        assertEquals(2, r.omittedFiles);
+        assertTrue(r.truncated);
+        assertTrue(r.files.get(0).partial);
+        assertTrue(out.toString().contains("[TRUNCATED: exceeded token budget]"));
+        assertTrue(out.toString().contains("[TRUNCATED: 2 file(s) left out to fit the budget]"));
+    }
+
+    @Test
+    public void binaryAndUnreadableFilesAreCountedSeparately() throws IOException {
+        StringWriter out = new StringWriter();
+        BundleResult r = write(source(new MemoryFile("blob.dat", new byte[]{1, 0, 2}),
+                new MemoryFile("unreadable.txt", "x"), new MemoryFile("ok.txt", "ok")),
+                BundleBudget.chars(1_000_000), out);
+        assertEquals(1, r.copiedFiles);
+        assertEquals(1, r.skippedBinary);
+        assertEquals(1, r.unreadable);
+    }
+
+    @Test
+    public void roomOfASniffedBinaryGoesToTheFilesLeftOut() throws IOException {
+        // The explicit binary is planned in first and leaves no room for ok.txt until it is read
+        MemoryFile blob = new MemoryFile("blob.txt", new byte[1000]);
+        MemoryFile ok = new MemoryFile("ok.txt", "ok");
+        FileSource source = (out, progress) -> {
+            out.add(blob, "root/blob.txt", true, false);
+            out.add(ok, "root/ok.txt", false, false);
+        };
+        StringWriter out = new StringWriter();
+        BundleResult r = write(source, BundleBudget.chars(1050), out);
+        assertEquals(1, r.copiedFiles);
+        assertEquals(1, r.skippedBinary);
+        assertEquals(0, r.omittedFiles);
+        assertEquals("### root/ok.txt\n```\nok\n```", out.toString());
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BundlePackerTest {
+
+    private static final long NOW = 10_000_000_000L;
+    // A 100-byte file with a one-letter path costs 100 + 1 + 24 chars in the packer's estimate
+    private static final int COST = 125;
+
+    private static BundleEntry entry(String name, int size, boolean explicit) {
+        return entry(new MemoryFile(name, new byte[size], 0), explicit);
+    }
+
+    private static BundleEntry entry(MemoryFile file, boolean explicit) {
+        return new BundleEntry(file, file.name, explicit, false);
+    }
+
+    private static List<String> names(List<BundleEntry> packed) {
+        List<String> names = new ArrayList<>();
+        for (BundleEntry fe : packed) names.add(fe.path);
+        return names;
+    }
+
+    private static List<BundleEntry> pack(List<BundleEntry> files, long maxChars, Set<? extends BundleFile> open,
+                                          Set<BundleEntry> skipped) {
+        return BundlePacker.pack(files, BundleBudget.chars(maxChars), open, NOW, skipped);
+    }
+
+    @Test
+    public void ranksExplicitThenOpenThenRecentAndKeepsPathOrder() {
+        BundleEntry plain = entry("a", 100, false);
+        BundleEntry recent = entry(new MemoryFile("b", new byte[100], NOW), false);
+        BundleEntry open = entry("c", 100, false);
+        BundleEntry explicit = entry("d", 100, true);
+        List<BundleEntry> files = Arrays.asList(plain, recent, open, explicit);
+        Set<BundleFile> openFiles = Collections.singleton(open.file);
+
+        assertEquals(Arrays.asList("d"), names(pack(files, COST, openFiles, Collections.emptySet())));
+        assertEquals(Arrays.asList("c", "d"), names(pack(files, 2 * COST, openFiles, Collections.emptySet())));
+        assertEquals(Arrays.asList("b", "c", "d"), names(pack(files, 3 * COST, openFiles, Collections.emptySet())));
+    }
+
+    @Test
+    public void smallFileBeatsLargeOneOfEqualStanding() {
+        // Either fits on its own, not both
+        List<BundleEntry> files = Arrays.asList(entry("a", 200, false), entry("b", 10, false));
+        assertEquals(Arrays.asList("b"), names(pack(files, 250, Collections.emptySet(), Collections.emptySet())));
+    }
+
+    @Test
+    public void exactFitKeepsEverythingAndOneCharLessDropsAFile() {
+        List<BundleEntry> files = Arrays.asList(entry("a", 100, false), entry("b", 100, false));
+        assertSame(files, pack(files, 2 * COST, Collections.emptySet(), Collections.emptySet()));
+        assertEquals(1, pack(files, 2 * COST - 1, Collections.emptySet(), Collections.emptySet()).size());
+    }
+
+    @Test
+    public void whenNothingFitsTheBestFileIsKeptForTheRendererToCut() {
+        List<BundleEntry> files = Arrays.asList(entry("a", 100, false), entry("b", 100, true));
+        assertEquals(Arrays.asList("b"), names(pack(files, 10, Collections.emptySet(), Collections.emptySet())));
+    }
+
+    @Test
+    public void skippedAndIgnoredFilesCostNothing() {
+        BundleEntry sniffedBinary = entry("a", 1000, true);
+        BundleEntry image = entry("b.png", 1000, true);
+        BundleEntry text = entry("c", 100, false);
+        List<BundleEntry> files = Arrays.asList(sniffedBinary, image, text);
+
+        // Sized from metadata, the explicit binary takes the room the text file needed
+        assertEquals(Arrays.asList("a", "b.png"),
+                names(pack(files, 1100, Collections.emptySet(), Collections.emptySet())));
+        // Once it is known to be skipped it is kept but charged nothing
+        assertEquals(Arrays.asList("a", "b.png", "c"),
+                names(pack(files, 1100, Collections.emptySet(), Collections.singleton(sniffedBinary))));
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ContentCompactorTest {
+
+    private static final CompactionOptions ALL = new CompactionOptions(true, true, true, true);
+    private static final CompactionOptions COMMENTS = new CompactionOptions(false, true, false, false);
+    private static final CompactionOptions LICENSE = new CompactionOptions(true, false, false, false);
+
+    private static String compact(String text, String extension, CompactionOptions options) {
+        return ContentCompactor.compact(text, ContentCompactor.Syntax.forExtension(extension), options).toString();
+    }
+
+    @Test
+    public void commentMarkersInsideStringAndCharLiteralsAreKept() {
+        assertEquals("String u = \"http://x/*y*/\"; \n",
+                compact("String u = \"http://x/*y*/\"; // link\n", "java", COMMENTS));
+        assertEquals("boolean b = c == '/' && d == '*';\n",
+                compact("boolean b = c == '/' && d == '*';\n", "java", COMMENTS));
+        assertEquals("String s = \"a\\\"//b\";\n", compact("String s = \"a\\\"//b\";\n", "java", COMMENTS));
+    }
+
+    @Test
+    public void textBlocksAndDocstringsAreKept() {
+        String java = "String s = \"\"\"\n    // not a comment\n    /* nor this */\n    \"\"\";\n";
+        assertEquals(java, compact(java, "java", COMMENTS));
+        String python = "'''\n# kept\n'''\nx = 1  # dropped\n";
+        assertEquals("'''\n# kept\n'''\nx = 1  \n", compact(python, "py", COMMENTS));
+    }
+
+    @Test
+    public void hashCommentsOnlyStartAtAWordBoundary() {
+        assertEquals("#!/bin/sh\necho ${#x} a#b\n",
+                compact("#!/bin/sh\n# setup\necho ${#x} a#b # trailing\n", "sh", ALL));
+        assertEquals("x = \"# no\"\n", compact("x = \"# no\"  # yes\n", "py", ALL));
+    }
+
+    @Test
+    public void commentFillingItsLinesDisappearsWithThem() {
+        assertEquals("a\nb\n", compact("a\n    // x\n  /* y\n   z */  \nb\n", "java", COMMENTS));
+        // Kept apart so tokens do not merge
+        assertEquals("a b\n", compact("a/* x */b\n", "java", COMMENTS));
+    }
+
+    @Test
+    public void unterminatedCommentsAndStringsStopSafely() {
+        assertEquals("a  ", compact("a /* never closed\nb\n", "java", COMMENTS));
+        // An unterminated string ends at its line, so the next line is still lexed
+        assertEquals("s = \"open\n", compact("s = \"open\n// gone\n", "java", COMMENTS));
+    }
+
+    @Test
+    public void licenseHeaderIsDroppedOnlyWhenItReadsLikeOne() {
+        assertEquals("package a;\n", compact("/*\n * Copyright 2024 X\n */\n\npackage a;\n", "java", LICENSE));
+        String helper = "/* Helper for tests */\nclass A {}\n";
+        assertEquals(helper, compact(helper, "java", LICENSE));
+        assertEquals("#!/usr/bin/env python\nimport os\n",
+                compact("#!/usr/bin/env python\n# Copyright X\n# SPDX-License-Identifier: MIT\n\nimport os\n",
+                        "py", LICENSE));
+    }
+
+    @Test
+    public void blankRunsCollapseAndTrailingWhitespaceIsTrimmed() {
+        CompactionOptions lines = new CompactionOptions(false, false, true, true);
+        assertEquals("a\n\nb\n", compact("\n\na  \n\n \n\t\nb\t\n", "txt", lines));
+        assertEquals("a  \r\n", compact("a  \r\n", "txt", CompactionOptions.NONE));
+    }
+
+    @Test
+    public void resultReportsContentCharsBeforeAndAfter() throws IOException {
+        String text = "/* Copyright X */\nclass A {} // c\n\n\n";
+        StringWriter out = new StringWriter();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        BundleResult r;
+        try {
+            FileSource source = (sink, progress) -> sink.add(new MemoryFile("A.java", text), "A.java", false, false);
+            r = new BundleEngine(executor, 4).write(source, out,
+                    BundleOptions.of(BundleBudget.chars(1_000_000)).withCompaction(ALL), null, BundleProgress.NONE);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(text.length(), r.contentCharsBefore);
+        // One blank line of the run is kept
+        assertEquals("class A {}\n\n".length(), r.contentCharsAfter);
+        assertTrue(out.toString().contains("```java\nclass A {}\n\n```"));
+    }
+}
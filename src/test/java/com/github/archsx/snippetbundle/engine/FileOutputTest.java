@@ -0,0 +1,103 @@
+package com.github.archsx.snippetbundle.engine;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class FileOutputTest {
+
+    // Outside the BMP: a surrogate pair in UTF-16, four bytes in UTF-8
+    private static final String EMOJI = "😀";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static String ascii(int length) {
+        char[] chars = new char[length];
+        Arrays.fill(chars, 'x');
+        return new String(chars);
+    }
+
+    private Path target(String content) throws IOException {
+        Path target = temp.getRoot().toPath().resolve("bundle.md");
+        Files.write(target, content.getBytes(StandardCharsets.UTF_8));
+        return target;
+    }
+
+    private static void assertContent(String expected, Path file) throws IOException {
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), Files.readAllBytes(file));
+    }
+
+    @Test
+    public void surrogatePairSplitAcrossWritesAndTheBufferBoundaryIsEncodedWhole() throws IOException {
+        // One byte short of a full buffer, so the four bytes of the pair straddle the drain
+        String head = ascii(FileOutput.BUFFER_BYTES - 1);
+        Path target = target("");
+        try (FileOutput output = new FileOutput(target)) {
+            Writer w = output.writer();
+            w.write(head);
+            w.write(EMOJI.charAt(0));
+            w.write(EMOJI.charAt(1) + "!");
+            output.commit();
+        }
+        assertContent(head + EMOJI + "!", target);
+    }
+
+    @Test
+    public void surrogatePairInOneWriteAcrossTheBufferBoundaryIsEncodedWhole() throws IOException {
+        String head = ascii(FileOutput.BUFFER_BYTES - 2);
+        Path target = target("");
+        try (FileOutput output = new FileOutput(target)) {
+            output.writer().write(head + EMOJI + EMOJI);
+            output.commit();
+        }
+        assertContent(head + EMOJI + EMOJI, target);
+    }
+
+    @Test
+    public void closingWithoutCommitLeavesTheTargetAndNoTempFile() throws IOException {
+        Path target = target("old");
+        try (FileOutput output = new FileOutput(target)) {
+            output.writer().write("new");
+            output.writer().flush();
+        }
+        assertContent("old", target);
+        assertEquals(Arrays.asList("bundle.md"), Arrays.asList(temp.getRoot().list()));
+    }
+
+    @Test
+    public void unclosedOutputLeavesTheTargetUntouched() throws IOException {
+        Path target = target("old");
+        FileOutput output = new FileOutput(target);
+        try {
+            output.writer().write(ascii(FileOutput.BUFFER_BYTES + 10));
+            output.writer().flush();
+            assertContent("old", target);
+        } finally {
+            output.close();
+        }
+    }
+
+    @Test
+    public void commitReplacesTheTargetAndCreatesMissingFolders() throws IOException {
+        File dir = new File(temp.getRoot(), "out/nested");
+        Path target = dir.toPath().resolve("bundle.md");
+        try (FileOutput output = new FileOutput(target)) {
+            output.writer().write("done\n");
+            output.commit();
+        }
+        assertContent("done\n", target);
+        assertEquals(1, dir.list().length);
+    }
+}
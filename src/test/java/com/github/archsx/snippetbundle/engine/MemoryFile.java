@@ -0,0 +1,57 @@
+package com.github.archsx.snippetbundle.engine;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/** In-memory {@link BundleFile} for engine tests; a name starting with "unreadable" fails to read. */
+final class MemoryFile implements BundleFile {
+    final String name;
+    private final byte[] content;
+    private final long timeStamp;
+
+    MemoryFile(String name, byte[] content, long timeStamp) {
+        this.name = name;
+        this.content = content;
+        this.timeStamp = timeStamp;
+    }
+
+    MemoryFile(String name, byte[] content) {
+        this(name, content, 0);
+    }
+
+    MemoryFile(String name, String content) {
+        this(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getExtension() {
+        return FileRules.extensionOf(name);
+    }
+
+    @Override
+    public long getLength() {
+        return content.length;
+    }
+
+    @Override
+    public long getTimeStamp() {
+        return timeStamp;
+    }
+
+    @Override
+    public Charset getCharset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public byte[] contentsToByteArray() throws IOException {
+        if (name.startsWith("unreadable")) throw new IOException("denied");
+        return content;
+    }
+}
@@ -0,0 +1,117 @@
+package com.github.archsx.snippetbundle.engine;
+
+import com.github.archsx.snippetbundle.ignore.IgnoreRuleSet;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class PathFileSourceTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    /**
+     * A repository with a root .gitignore, a nested one that re-includes what the root excludes, local excludes,
+     * an ignored folder and a link back to the root.
+     */
+    private Path repo() throws IOException {
+        Path repo = temp.getRoot().toPath().resolve("repo");
+        write(repo.resolve(".git/info/exclude"), "*.tmp\n");
+        write(repo.resolve(".gitignore"), "*.log\n!keep.log\ngen/\n");
+        write(repo.resolve("a.txt"), "a");
+        write(repo.resolve("debug.log"), "ignored by *.log");
+        write(repo.resolve("keep.log"), "negated");
+        write(repo.resolve("scratch.tmp"), "ignored by .git/info/exclude");
+        write(repo.resolve("gen/Out.java"), "ignored folder");
+        write(repo.resolve("sub/.gitignore"), "*.txt\n!readme.txt\n!trace.log\n");
+        write(repo.resolve("sub/readme.txt"), "negated in the same file");
+        write(repo.resolve("sub/notes.txt"), "ignored by the nested file");
+        write(repo.resolve("sub/trace.log"), "the deeper rule wins");
+        write(repo.resolve("sub/other.log"), "ignored by the root file");
+        Files.createSymbolicLink(repo.resolve("sub/loop"), repo);
+        return repo;
+    }
+
+    private static void write(Path file, String content) throws IOException {
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> paths(PathFileSource source) throws IOException {
+        List<String> paths = Collections.synchronizedList(new ArrayList<>());
+        source.collect((file, path, explicit, outline) -> paths.add(path), BundleProgress.NONE);
+        List<String> sorted = new ArrayList<>(paths);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    @Test
+    public void appliesNestedIgnoreFilesNegationAndLocalExcludes() throws IOException {
+        PathFileSource source = new PathFileSource(Collections.singletonList(repo()));
+        assertEquals(Arrays.asList("repo/.gitignore", "repo/a.txt", "repo/keep.log", "repo/sub/.gitignore",
+                "repo/sub/readme.txt", "repo/sub/trace.log"), paths(source));
+    }
+
+    @Test
+    public void extraRulesApplyOnTopOfTheRootIgnoreFiles() throws IOException {
+        PathFileSource source = new PathFileSource(Collections.singletonList(repo()))
+                .withExtraRules(IgnoreRuleSet.parse("keep.log\n.gitignore\n", false));
+        assertEquals(Arrays.asList("repo/a.txt", "repo/sub/readme.txt", "repo/sub/trace.log"), paths(source));
+    }
+
+    @Test
+    public void withoutIgnoreFilesOnlyFileRulesApplyAndTheLoopIsWalkedOnce() throws IOException {
+        PathFileSource source = new PathFileSource(Collections.singletonList(repo())).withIgnoreFiles(false);
+        // .git is pruned by name; sub/loop leads back to repo, which is already being walked
+        assertEquals(Arrays.asList("repo/.gitignore", "repo/a.txt", "repo/debug.log", "repo/gen/Out.java",
+                "repo/keep.log", "repo/scratch.tmp", "repo/sub/.gitignore", "repo/sub/notes.txt",
+                "repo/sub/other.log", "repo/sub/readme.txt", "repo/sub/trace.log"), paths(source));
+    }
+
+    @Test
+    public void bundleIsTheSameOnEveryRunWhateverTheWalkOrder() throws IOException {
+        Path repo = repo();
+        for (int i = 0; i < 40; i++) write(repo.resolve("many/d" + (i % 7) + "/f" + i + ".txt"), "file " + i);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            PathFileSource source = new PathFileSource(Collections.singletonList(repo)).withPool(pool);
+            BundleEngine engine = new BundleEngine(executor, 8);
+            String first = null;
+            for (int run = 0; run < 5; run++) {
+                StringWriter out = new StringWriter();
+                engine.write(source, out, BundleOptions.of(BundleBudget.chars(1_000_000)), null, BundleProgress.NONE);
+                if (first == null) first = out.toString();
+                else assertEquals(first, out.toString());
+            }
+            List<String> headers = new ArrayList<>();
+            for (String line : first.split("\n")) {
+                if (line.startsWith("### ")) headers.add(line.substring(4));
+            }
+            List<String> sorted = new ArrayList<>(headers);
+            sorted.sort(Comparator.comparing(h -> h.toLowerCase(Locale.ROOT)));
+            assertEquals(46, headers.size());
+            assertEquals(sorted, headers);
+        } finally {
+            pool.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.archsx.snippetbundle.ignore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IgnorePatternTest {
+
+    private static IgnorePattern compile(String line) {
+        IgnorePattern p = IgnorePattern.compile(line, false);
+        assertNotNull(line, p);
+        return p;
+    }
+
+    @Test
+    public void blankLinesAndCommentsAreSkipped() {
+        assertNull(IgnorePattern.compile("", false));
+        assertNull(IgnorePattern.compile("   ", false));
+        assertNull(IgnorePattern.compile("# comment", false));
+        assertNull(IgnorePattern.compile("/", false));
+        assertTrue(compile("\\#notes").matches("#notes", false));
+    }
+
+    @Test
+    public void unanchoredPatternMatchesAtAnyDepth() {
+        IgnorePattern p = compile("*.log");
+        assertTrue(p.matches("a.log", false));
+        assertTrue(p.matches("x/y/a.log", false));
+        assertFalse(p.matches("a.log.txt", false));
+        assertFalse(p.matches("x/a.logs", false));
+    }
+
+    @Test
+    public void slashAnchorsToTheIgnoreFileDirectory() {
+        IgnorePattern leading = compile("/dist");
+        assertTrue(leading.matches("dist", true));
+        assertFalse(leading.matches("app/dist", true));
+
+        IgnorePattern inner = compile("docs/*.pdf");
+        assertTrue(inner.matches("docs/a.pdf", false));
+        assertFalse(inner.matches("x/docs/a.pdf", false));
+        assertFalse(inner.matches("docs/sub/a.pdf", false));
+    }
+
+    @Test
+    public void starStaysWithinOneSegment() {
+        IgnorePattern p = compile("src/*.java");
+        assertTrue(p.matches("src/A.java", false));
+        assertFalse(p.matches("src/a/A.java", false));
+    }
+
+    @Test
+    public void doubleStar() {
+        IgnorePattern leading = compile("**/generated");
+        assertTrue(leading.matches("generated", true));
+        assertTrue(leading.matches("a/b/generated", true));
+
+        IgnorePattern trailing = compile("build/**");
+        assertTrue(trailing.matches("build/x", false));
+        assertTrue(trailing.matches("build/x/y.txt", false));
+        assertFalse(trailing.matches("build", true));
+
+        IgnorePattern middle = compile("docs/**/*.pdf");
+        assertTrue(middle.matches("docs/a.pdf", false));
+        assertTrue(middle.matches("docs/a/b/c.pdf", false));
+        assertFalse(middle.matches("other/docs/a.pdf", false));
+    }
+
+    @Test
+    public void directoryOnly() {
+        IgnorePattern p = compile("out/");
+        assertTrue(p.isDirectoryOnly());
+        assertTrue(p.matches("out", true));
+        assertTrue(p.matches("a/out", true));
+        assertFalse(p.matches("out", false));
+    }
+
+    @Test
+    public void negation() {
+        IgnorePattern p = compile("!keep.log");
+        assertTrue(p.isNegated());
+        assertTrue(p.matches("keep.log", false));
+        assertFalse(compile("\\!important").isNegated());
+        assertTrue(compile("\\!important").matches("!important", false));
+    }
+
+    @Test
+    public void characterClasses() {
+        IgnorePattern range = compile("*.[oa]");
+        assertTrue(range.matches("x.o", false));
+        assertTrue(range.matches("x.a", false));
+        assertFalse(range.matches("x.c", false));
+
+        IgnorePattern negated = compile("file[!0-9]");
+        assertTrue(negated.matches("filex", false));
+        assertFalse(negated.matches("file1", false));
+
+        IgnorePattern posix = compile("v[[:digit:]]*");
+        assertTrue(posix.matches("v1.txt", false));
+        assertFalse(posix.matches("vx.txt", false));
+    }
+
+    @Test
+    public void invalidClassesAreSkipped() {
+        assertNull(IgnorePattern.compile("[z-a]", false));
+        assertNull(IgnorePattern.compile("*.[z-a]", true));
+        assertNull(IgnorePattern.compile("[[:nosuchclass:]]", false));
+    }
+
+    @Test
+    public void unterminatedClassIsLiteral() {
+        assertTrue(compile("a[b").matches("a[b", false));
+    }
+
+    @Test
+    public void ignoreCase() {
+        IgnorePattern p = IgnorePattern.compile("*.LOG", true);
+        assertNotNull(p);
+        assertTrue(p.matches("a.log", false));
+        assertFalse(compile("*.LOG").matches("a.log", false));
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.archsx.snippetbundle.ignore;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class IgnoreRuleSetTest {
+
+    @Test
+    public void lastMatchingRuleWins() {
+        IgnoreRuleSet rules = IgnoreRuleSet.parse("*.log\n!keep.log\n", false);
+        assertEquals(IgnoreRuleSet.Verdict.IGNORED, rules.match("a.log", false));
+        assertEquals(IgnoreRuleSet.Verdict.INCLUDED, rules.match("keep.log", false));
+        assertEquals(IgnoreRuleSet.Verdict.NONE, rules.match("a.txt", false));
+
+        IgnoreRuleSet reversed = IgnoreRuleSet.parse("!keep.log\n*.log\n", false);
+        assertEquals(IgnoreRuleSet.Verdict.IGNORED, reversed.match("keep.log", false));
+    }
+
+    @Test
+    public void directoryOnlyRulesDoNotMatchFiles() {
+        IgnoreRuleSet rules = IgnoreRuleSet.parse("build/\n", false);
+        assertEquals(IgnoreRuleSet.Verdict.IGNORED, rules.match("build", true));
+        assertEquals(IgnoreRuleSet.Verdict.NONE, rules.match("build", false));
+    }
+
+    @Test
+    public void invalidLinesAreDroppedAndTheRestStillApplies() {
+        IgnoreRuleSet rules = IgnoreRuleSet.parse("[z-a]\n# comment\n\n*.tmp\r\n", false);
+        assertEquals(1, rules.getPatterns().size());
+        assertEquals(IgnoreRuleSet.Verdict.IGNORED, rules.match("x.tmp", false));
+    }
+
+    @Test
+    public void laterSetWinsOnConcat() {
+        IgnoreRuleSet first = IgnoreRuleSet.parse("*.log\n", false);
+        IgnoreRuleSet later = IgnoreRuleSet.parse("!keep.log\n", false);
+        assertEquals(IgnoreRuleSet.Verdict.INCLUDED, first.concat(later).match("keep.log", false));
+        assertEquals(IgnoreRuleSet.Verdict.IGNORED, later.concat(first).match("keep.log", false));
+    }
+
+    @Test
+    public void emptyInputGivesEmptySet() {
+        assertTrue(IgnoreRuleSet.parse("# only comments\n\n", false).isEmpty());
+    }
+}